@@ -0,0 +1,36 @@
+package de.hsbi.binex.binex_backend.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@Configuration
+public class AdminAccessConfig implements WebMvcConfigurer {
+
+    @Value("${app.admin.token}")
+    private String adminToken;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Admin-Endpunkte nur mit gesetztem ADMIN_TOKEN und passendem Header freigeben
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                String token = request.getHeader("X-Admin-Token");
+                if (adminToken == null || adminToken.isEmpty() || token == null ||
+                        !MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+                    response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                    return false;
+                }
+                return true;
+            }
+        }).addPathPatterns("/api/admin/**");
+    }
+}
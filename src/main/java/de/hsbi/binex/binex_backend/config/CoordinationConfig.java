@@ -0,0 +1,26 @@
+package de.hsbi.binex.binex_backend.config;
+
+import de.hsbi.binex.binex_backend.coordination.CoordinationStore;
+import de.hsbi.binex.binex_backend.coordination.FileCoordinationStore;
+import de.hsbi.binex.binex_backend.coordination.InMemoryCoordinationStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class CoordinationConfig {
+
+    // Mit mehreren Instanzen muss der Zustand der Nonce-Leases auf einem gemeinsamen Volume liegen
+    @Bean
+    public CoordinationStore coordinationStore(@Value("${app.coordination.backend}") String backend,
+                                               @Value("${app.coordination.file-path}") String filePath) throws IOException {
+        return switch (backend.toLowerCase()) {
+            case "memory" -> new InMemoryCoordinationStore();
+            case "file" -> new FileCoordinationStore(Path.of(filePath));
+            default -> throw new IllegalArgumentException("app.coordination.backend must be memory or file");
+        };
+    }
+}
@@ -19,11 +19,21 @@ public class CorsConfig {
         config.setAllowedMethods(List.of("POST"));
         config.setAllowedHeaders(List.of("*"));
         config.setAllowCredentials(false);
+        // Server-Timing im Browser der Teilnehmenden auswertbar machen
+        config.setExposedHeaders(List.of("Server-Timing", "X-Request-Id"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
 
-        // CORS-Konfiguration nur für /api/mint-nft anwenden
+        // CORS-Konfiguration nur für die Mint-Endpunkte anwenden
         source.registerCorsConfiguration("/api/mint-nft", config);
+        source.registerCorsConfiguration("/api/reactive/mint-nft", config);
+
+        // Metadaten werden von Wallets und Marktplätzen direkt im Browser abgerufen
+        CorsConfiguration metadataConfig = new CorsConfiguration();
+        metadataConfig.setAllowedOrigins(List.of("*"));
+        metadataConfig.setAllowedMethods(List.of("GET"));
+        metadataConfig.setAllowCredentials(false);
+        source.registerCorsConfiguration("/api/metadata/**", metadataConfig);
 
         return new CorsFilter(source);
     }
@@ -0,0 +1,18 @@
+package de.hsbi.binex.binex_backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.web3j.protocol.Web3j;
+import de.hsbi.binex.binex_backend.monitoring.TracingHttpService;
+import de.hsbi.binex.binex_backend.rpc.AdaptiveConcurrencyLimiter;
+
+@Configuration
+public class Web3jConfig {
+
+    // Eine gemeinsame Verbindung zur Q-Blockchain statt einer neuen pro Anfrage
+    @Bean(destroyMethod = "shutdown")
+    public Web3j web3j(@Value("${app.qblockchain.url}") String blockchainUrl, AdaptiveConcurrencyLimiter limiter) {
+        return Web3j.build(new TracingHttpService(blockchainUrl, limiter));
+    }
+}
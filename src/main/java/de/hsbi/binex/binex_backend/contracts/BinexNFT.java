@@ -51,6 +51,8 @@ public class BinexNFT extends Contract {
 
     public static final String FUNC_BALANCEOF = "balanceOf";
 
+    public static final String FUNC_BATCHMINTTO = "batchMintTo";
+
     public static final String FUNC_BURNFROM = "burnFrom";
 
     public static final String FUNC_EXISTS = "exists";
@@ -298,6 +300,23 @@ public class BinexNFT extends Contract {
         return executeRemoteCallSingleValueReturn(function, BigInteger.class);
     }
 
+    public RemoteFunctionCall<TransactionReceipt> batchMintTo(List<String> receivers,
+            List<BigInteger> tokenIds, List<String> tokenURIs) {
+        final Function function = new Function(
+                FUNC_BATCHMINTTO, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.Address>(
+                        org.web3j.abi.datatypes.Address.class,
+                        org.web3j.abi.Utils.typeMap(receivers, org.web3j.abi.datatypes.Address.class)), 
+                new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.generated.Uint256>(
+                        org.web3j.abi.datatypes.generated.Uint256.class,
+                        org.web3j.abi.Utils.typeMap(tokenIds, org.web3j.abi.datatypes.generated.Uint256.class)), 
+                new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.Utf8String>(
+                        org.web3j.abi.datatypes.Utf8String.class,
+                        org.web3j.abi.Utils.typeMap(tokenURIs, org.web3j.abi.datatypes.Utf8String.class))), 
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallTransaction(function);
+    }
+
     public RemoteFunctionCall<TransactionReceipt> burnFrom(String payer, BigInteger tokenId) {
         final Function function = new Function(
                 FUNC_BURNFROM, 
@@ -0,0 +1,92 @@
+package de.hsbi.binex.binex_backend.controller;
+
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.monitoring.SlowRequestRecorder;
+import de.hsbi.binex.binex_backend.rpc.AdaptiveConcurrencyLimiter;
+import de.hsbi.binex.binex_backend.service.ContractViewCache;
+import de.hsbi.binex.binex_backend.service.MintScheduler;
+import de.hsbi.binex.binex_backend.service.SurveyExportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final ContractViewCache contractViewCache;
+    private final SlowRequestRecorder slowRequestRecorder;
+    private final FeeBumpEngine feeBumpEngine;
+    private final SurveyExportService surveyExportService;
+    private final MintScheduler mintScheduler;
+    private final AdaptiveConcurrencyLimiter rpcLimiter;
+
+    public AdminController(ContractViewCache contractViewCache, SlowRequestRecorder slowRequestRecorder,
+                           FeeBumpEngine feeBumpEngine, SurveyExportService surveyExportService,
+                           MintScheduler mintScheduler, AdaptiveConcurrencyLimiter rpcLimiter) {
+        this.contractViewCache = contractViewCache;
+        this.slowRequestRecorder = slowRequestRecorder;
+        this.feeBumpEngine = feeBumpEngine;
+        this.surveyExportService = surveyExportService;
+        this.mintScheduler = mintScheduler;
+        this.rpcLimiter = rpcLimiter;
+    }
+
+    @GetMapping("/contract-cache")
+    public ContractViewCache.Statistics getContractCacheStatistics() {
+        return contractViewCache.getStatistics();
+    }
+
+    @GetMapping("/slow-requests")
+    public List<SlowRequestRecorder.SlowRequest> getSlowRequests() {
+        return slowRequestRecorder.getSlowRequests();
+    }
+
+    @GetMapping("/fee-bumps")
+    public FeeBumpEngine.Statistics getFeeBumpStatistics() {
+        return feeBumpEngine.getStatistics();
+    }
+
+    @GetMapping("/mint-lanes")
+    public List<MintScheduler.LaneStatistics> getMintLanes() {
+        return mintScheduler.getStatistics();
+    }
+
+    @GetMapping("/rpc-limiter")
+    public AdaptiveConcurrencyLimiter.Statistics getRpcLimiterStatistics() {
+        return rpcLimiter.getStatistics();
+    }
+
+    // Enthält Empfängeradressen je Umfrage, daher nur für Admins
+    @GetMapping("/surveys/{surveyId}/minted.csv")
+    public ResponseEntity<StreamingResponseBody> exportMinted(@PathVariable String surveyId) {
+        if (!surveyExportService.hasSurvey(surveyId)) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try {
+                surveyExportService.exportMinted(surveyId, writer);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Export of survey " + surveyId + " failed: " + e.getMessage(), e);
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + surveyId + "-minted.csv\"")
+                .body(body);
+    }
+}
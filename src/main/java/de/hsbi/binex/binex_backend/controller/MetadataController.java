@@ -0,0 +1,39 @@
+package de.hsbi.binex.binex_backend.controller;
+
+import de.hsbi.binex.binex_backend.service.TokenMetadataService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api")
+public class MetadataController {
+
+    // Metadaten einer Umfrage ändern sich nicht, daher dürfen Clients sie lange cachen
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    private final TokenMetadataService tokenMetadataService;
+
+    public MetadataController(TokenMetadataService tokenMetadataService) {
+        this.tokenMetadataService = tokenMetadataService;
+    }
+
+    @GetMapping("/metadata/{tokenId}")
+    public ResponseEntity<byte[]> getMetadata(@PathVariable String tokenId, @RequestParam String survey) {
+        if (tokenId.isEmpty() || !tokenId.chars().allMatch(Character::isDigit)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // If-None-Match wird von Spring anhand des ETags mit 304 beantwortet
+        return tokenMetadataService.getMetadata(survey)
+                .map(metadata -> ResponseEntity.ok()
+                        .eTag(metadata.eTag())
+                        .cacheControl(CACHE_CONTROL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(metadata.json()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -1,5 +1,12 @@
 package de.hsbi.binex.binex_backend.controller;
 
+import de.hsbi.binex.binex_backend.monitoring.MintTrace;
+import de.hsbi.binex.binex_backend.monitoring.RequestEventLogger;
+import de.hsbi.binex.binex_backend.monitoring.SlowRequestRecorder;
+import de.hsbi.binex.binex_backend.monitoring.SurveyStatistics;
+import de.hsbi.binex.binex_backend.service.MintPriority;
+import de.hsbi.binex.binex_backend.service.MintRejectedException;
+import de.hsbi.binex.binex_backend.service.MintingUnavailableException;
 import de.hsbi.binex.binex_backend.service.ParticipationService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,30 +21,68 @@ public class ParticipationController {
     private static final Logger logger = LoggerFactory.getLogger(ParticipationController.class);
 
     private final ParticipationService participationService;
+    private final RequestEventLogger requestEventLogger;
+    private final SlowRequestRecorder slowRequestRecorder;
+    private final SurveyStatistics surveyStatistics;
 
-    public ParticipationController(ParticipationService participationService) {
+    public ParticipationController(ParticipationService participationService, RequestEventLogger requestEventLogger,
+                                   SlowRequestRecorder slowRequestRecorder, SurveyStatistics surveyStatistics) {
         this.participationService = participationService;
+        this.requestEventLogger = requestEventLogger;
+        this.slowRequestRecorder = slowRequestRecorder;
+        this.surveyStatistics = surveyStatistics;
     }
 
     @PostMapping("/mint-nft")
     public ResponseEntity<String> mintNFT(@RequestParam String publicKey,
                                           @RequestParam String surveyId,
-                                          @RequestParam String participantPoints) {
+                                          @RequestParam String participantPoints,
+                                          @RequestHeader(value = "X-Mint-Priority", required = false) String priority,
+                                          @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+                                          @RequestHeader(value = "X-Cloud-Trace-Context", required = false) String cloudTrace) {
+        MintTrace trace = new MintTrace(RequestEventLogger.requestId(requestId, cloudTrace));
+        ResponseEntity<String> response;
+        String outcome;
+        trace.attach();
         try {
-            boolean isNewParticipation = participationService.processParticipation(publicKey, surveyId, participantPoints);
+            boolean isNewParticipation = participationService.processParticipation(publicKey, surveyId, participantPoints,
+                    MintPriority.fromHeader(priority), trace);
             if (isNewParticipation) {
-                return ResponseEntity.ok("NFT was successfully minted.");
+                outcome = "minted";
+                response = ResponseEntity.ok("NFT was successfully minted.");
             } else {
-                return ResponseEntity.status(HttpStatus.CONFLICT).body("Participation has already been registered.");
+                outcome = "duplicate";
+                response = ResponseEntity.status(HttpStatus.CONFLICT).body("Participation has already been registered.");
             }
         } catch (IllegalArgumentException e) {
             logger.error("Invalid input: {}", e.getMessage());
-            return ResponseEntity.badRequest().body("Invalid input: " + e.getMessage());
+            outcome = "invalid";
+            response = ResponseEntity.badRequest().body("Invalid input: " + e.getMessage());
+        } catch (MintRejectedException e) {
+            logger.warn("Participation rejected by simulation: {}", e.getMessage());
+            outcome = "rejected";
+            response = ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
+        } catch (MintingUnavailableException e) {
+            logger.warn("Participation rejected: {}", e.getMessage());
+            outcome = "unavailable";
+            response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error during the minting process", e);
+            outcome = "error";
             // Return detailed error message
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            response = ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("An error occurred: " + e.getMessage());
+        } finally {
+            MintTrace.detach();
         }
+
+        int status = response.getStatusCode().value();
+        requestEventLogger.log(trace, status, outcome);
+        slowRequestRecorder.record(trace, status, outcome);
+        surveyStatistics.record(trace, outcome);
+        return ResponseEntity.status(response.getStatusCode())
+                .header("X-Request-Id", trace.getRequestId())
+                .header("Server-Timing", trace.toServerTiming())
+                .body(response.getBody());
     }
 }
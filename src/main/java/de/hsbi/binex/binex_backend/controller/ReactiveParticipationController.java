@@ -0,0 +1,110 @@
+package de.hsbi.binex.binex_backend.controller;
+
+import de.hsbi.binex.binex_backend.monitoring.MintTrace;
+import de.hsbi.binex.binex_backend.monitoring.RequestEventLogger;
+import de.hsbi.binex.binex_backend.monitoring.SlowRequestRecorder;
+import de.hsbi.binex.binex_backend.monitoring.SurveyStatistics;
+import de.hsbi.binex.binex_backend.service.MintPriority;
+import de.hsbi.binex.binex_backend.service.MintRejectedException;
+import de.hsbi.binex.binex_backend.service.MintingUnavailableException;
+import de.hsbi.binex.binex_backend.service.ReactiveParticipationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+// Reaktive Variante von /api/mint-nft, der Servlet-Thread wird sofort wieder freigegeben
+@RestController
+@RequestMapping("/api/reactive")
+public class ReactiveParticipationController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveParticipationController.class);
+
+    private final ReactiveParticipationService reactiveParticipationService;
+    private final RequestEventLogger requestEventLogger;
+    private final SlowRequestRecorder slowRequestRecorder;
+    private final SurveyStatistics surveyStatistics;
+
+    public ReactiveParticipationController(ReactiveParticipationService reactiveParticipationService,
+                                           RequestEventLogger requestEventLogger,
+                                           SlowRequestRecorder slowRequestRecorder, SurveyStatistics surveyStatistics) {
+        this.reactiveParticipationService = reactiveParticipationService;
+        this.requestEventLogger = requestEventLogger;
+        this.slowRequestRecorder = slowRequestRecorder;
+        this.surveyStatistics = surveyStatistics;
+    }
+
+    @PostMapping("/mint-nft")
+    public Mono<ResponseEntity<String>> mintNFT(@RequestParam String publicKey,
+                                                @RequestParam String surveyId,
+                                                @RequestParam String participantPoints,
+                                                @RequestHeader(value = "X-Mint-Priority", required = false) String priority,
+                                                @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+                                                @RequestHeader(value = "X-Cloud-Trace-Context", required = false) String cloudTrace) {
+        MintTrace trace = new MintTrace(RequestEventLogger.requestId(requestId, cloudTrace));
+        return reactiveParticipationService.processParticipation(publicKey, surveyId, participantPoints,
+                        MintPriority.fromHeader(priority), trace)
+                .map(isNewParticipation -> isNewParticipation
+                        ? ResponseEntity.ok("NFT was successfully minted.")
+                        : ResponseEntity.status(HttpStatus.CONFLICT).body("Participation has already been registered."))
+                .onErrorResume(e -> Mono.just(toErrorResponse(unwrap(e))))
+                .map(response -> finish(trace, response));
+    }
+
+    private ResponseEntity<String> toErrorResponse(Throwable e) {
+        if (e instanceof IllegalArgumentException) {
+            logger.error("Invalid input: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Invalid input: " + e.getMessage());
+        }
+        if (e instanceof MintRejectedException) {
+            logger.warn("Participation rejected by simulation: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
+        }
+        if (e instanceof MintingUnavailableException) {
+            logger.warn("Participation rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+        if (e instanceof TimeoutException) {
+            logger.warn("Reactive mint timed out");
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body("Minting timed out, the transaction may still be confirmed.");
+        }
+        logger.error("Error during the minting process", e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("An error occurred: " + e.getMessage());
+    }
+
+    private ResponseEntity<String> finish(MintTrace trace, ResponseEntity<String> response) {
+        int status = response.getStatusCode().value();
+        String outcome = switch (status) {
+            case 200 -> "minted";
+            case 409 -> "duplicate";
+            case 422 -> "rejected";
+            case 400 -> "invalid";
+            case 503 -> "unavailable";
+            case 504 -> "timeout";
+            default -> "error";
+        };
+        requestEventLogger.log(trace, status, outcome);
+        slowRequestRecorder.record(trace, status, outcome);
+        surveyStatistics.record(trace, outcome);
+        return ResponseEntity.status(response.getStatusCode())
+                .header("X-Request-Id", trace.getRequestId())
+                .header("Server-Timing", trace.toServerTiming())
+                .body(response.getBody());
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        Throwable cause = Exceptions.unwrap(e);
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,24 @@
+package de.hsbi.binex.binex_backend.controller;
+
+import de.hsbi.binex.binex_backend.monitoring.SurveyStatistics;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/surveys")
+public class SurveyController {
+
+    private final SurveyStatistics surveyStatistics;
+
+    public SurveyController(SurveyStatistics surveyStatistics) {
+        this.surveyStatistics = surveyStatistics;
+    }
+
+    // Zähler seit dem Start dieser Instanz, bei mehreren Instanzen liefert jede ihren Anteil
+    @GetMapping("/{surveyId}/stats")
+    public ResponseEntity<SurveyStatistics.Stats> getStats(@PathVariable String surveyId) {
+        return surveyStatistics.getStats(surveyId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
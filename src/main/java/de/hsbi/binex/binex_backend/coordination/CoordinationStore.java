@@ -0,0 +1,12 @@
+package de.hsbi.binex.binex_backend.coordination;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+// Gemeinsamer Zustand der Nonce-Leases aller Instanzen, austauschbar je nach Deployment
+public interface CoordinationStore {
+
+    // Liest den Zustand eines Signers, wendet die Änderung an und schreibt ihn atomar zurück,
+    // auch gegenüber anderen Instanzen. Wirft die Änderung, bleibt der Zustand unverändert.
+    <T> T modify(String signer, Function<SignerState, T> change) throws IOException;
+}
@@ -0,0 +1,54 @@
+package de.hsbi.binex.binex_backend.coordination;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Zustand in einer Datei auf einem gemeinsamen Volume, Instanzen schließen sich über eine Dateisperre aus.
+// Das Volume muss POSIX-Sperren unterstützen (z.B. NFS/Filestore), Cloud Storage FUSE genügt nicht.
+public class FileCoordinationStore implements CoordinationStore {
+
+    private static final TypeReference<Map<String, SignerState>> STATES = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path file;
+
+    public FileCoordinationStore(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        Files.createDirectories(this.file.getParent());
+    }
+
+    // Dateisperren gelten pro Prozess, Threads derselben Instanz werden über den Monitor ausgeschlossen
+    @Override
+    public synchronized <T> T modify(String signer, Function<SignerState, T> change) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            byte[] content = Channels.newInputStream(channel).readAllBytes();
+            Map<String, SignerState> states = content.length == 0
+                    ? new HashMap<>()
+                    : objectMapper.readValue(content, STATES);
+
+            SignerState state = states.computeIfAbsent(signer, key -> new SignerState());
+            T result = change.apply(state);
+
+            byte[] updated = objectMapper.writeValueAsBytes(states);
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(updated), 0);
+            channel.force(true);
+            return result;
+        }
+    }
+}
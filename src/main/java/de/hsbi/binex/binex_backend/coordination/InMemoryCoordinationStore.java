@@ -0,0 +1,26 @@
+package de.hsbi.binex.binex_backend.coordination;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Zustand nur im Arbeitsspeicher: korrekt für eine einzelne Instanz und als Stand-in in Tests
+public class InMemoryCoordinationStore implements CoordinationStore {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Serialisiert abgelegt, damit eine fehlgeschlagene Änderung wie beim Datei-Backend nichts hinterlässt
+    private final Map<String, byte[]> states = new HashMap<>();
+
+    @Override
+    public synchronized <T> T modify(String signer, Function<SignerState, T> change) throws IOException {
+        byte[] stored = states.get(signer);
+        SignerState state = stored != null ? objectMapper.readValue(stored, SignerState.class) : new SignerState();
+        T result = change.apply(state);
+        states.put(signer, objectMapper.writeValueAsBytes(state));
+        return result;
+    }
+}
@@ -0,0 +1,279 @@
+package de.hsbi.binex.binex_backend.coordination;
+
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.fees.FeeQuote;
+import de.hsbi.binex.binex_backend.journal.MintJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Vergibt Nonces aus Leases, die sich alle Instanzen über den CoordinationStore teilen.
+// Jede Instanz least einen kleinen Bereich und verbraucht ihn lokal, abgelaufene Leases
+// toter Instanzen gehen zurück in den Pool, hängende Lücken werden mit einer leeren Transaktion geschlossen.
+@Component
+public class NonceCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(NonceCoordinator.class);
+
+    private static final BigInteger TRANSFER_GAS_LIMIT = BigInteger.valueOf(21_000);
+
+    private final Web3j web3j;
+    private final CoordinationStore store;
+    private final FeeBumpEngine feeBumpEngine;
+    private final MintJournal journal;
+    private final long chainId;
+    private final int rangeSize;
+    private final long leaseTtlMillis;
+    private final long gapTimeoutMillis;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Map<String, LocalLease> leases = new ConcurrentHashMap<>();
+    private ScheduledExecutorService maintenance;
+
+    private static final class LocalLease {
+
+        private final Credentials credentials;
+        private final Deque<Long> nonces = new ArrayDeque<>();
+        private boolean leased;
+        private long lastUse;
+
+        private LocalLease(Credentials credentials) {
+            this.credentials = credentials;
+        }
+    }
+
+    public NonceCoordinator(Web3j web3j, CoordinationStore store, FeeBumpEngine feeBumpEngine, MintJournal journal,
+                            @Value("${app.qblockchain.chainId}") long chainId,
+                            @Value("${app.coordination.range-size}") int rangeSize,
+                            @Value("${app.coordination.lease-ttl-seconds}") long leaseTtlSeconds,
+                            @Value("${app.coordination.gap-timeout-seconds}") long gapTimeoutSeconds) {
+        this.web3j = web3j;
+        this.store = store;
+        this.feeBumpEngine = feeBumpEngine;
+        this.journal = journal;
+        this.chainId = chainId;
+        this.rangeSize = Math.max(1, rangeSize);
+        this.leaseTtlMillis = TimeUnit.SECONDS.toMillis(leaseTtlSeconds);
+        this.gapTimeoutMillis = TimeUnit.SECONDS.toMillis(gapTimeoutSeconds);
+    }
+
+    @PostConstruct
+    public void start() {
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nonce-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Deutlich vor Ablauf verlängern, damit ein verzögerter Lauf den Lease nicht verliert
+        long interval = Math.max(1, leaseTtlMillis / 3);
+        maintenance.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        // Beim Herunterskalieren unbenutzte Nonces sofort für andere Instanzen freigeben
+        leases.forEach((signer, local) -> {
+            synchronized (local) {
+                if (local.leased) {
+                    release(signer, local);
+                }
+            }
+        });
+    }
+
+    public BigInteger nextNonce(Credentials credentials) throws IOException {
+        String signer = signerOf(credentials);
+        LocalLease local = leases.computeIfAbsent(signer, key -> new LocalLease(credentials));
+        synchronized (local) {
+            if (local.nonces.isEmpty()) {
+                BigInteger pending = web3j.ethGetTransactionCount(signer, DefaultBlockParameterName.PENDING).send()
+                        .getTransactionCount();
+                acquire(signer, local, pending.longValueExact());
+            }
+            return take(local);
+        }
+    }
+
+    public CompletableFuture<BigInteger> nextNonceAsync(Credentials credentials) {
+        String signer = signerOf(credentials);
+        LocalLease local = leases.computeIfAbsent(signer, key -> new LocalLease(credentials));
+        synchronized (local) {
+            if (!local.nonces.isEmpty()) {
+                return CompletableFuture.completedFuture(take(local));
+            }
+        }
+        return web3j.ethGetTransactionCount(signer, DefaultBlockParameterName.PENDING).sendAsync()
+                .thenApply(pending -> {
+                    synchronized (local) {
+                        if (local.nonces.isEmpty()) {
+                            try {
+                                acquire(signer, local, pending.getTransactionCount().longValueExact());
+                            } catch (IOException e) {
+                                throw new CompletionException(e);
+                            }
+                        }
+                        return take(local);
+                    }
+                });
+    }
+
+    // Eine abgelehnte oder nie gesendete Transaktion hat ihre Nonce nicht verbraucht
+    public void returnNonce(Credentials credentials, BigInteger nonce) {
+        String signer = signerOf(credentials);
+        LocalLease local = leases.get(signer);
+        if (local == null) {
+            return;
+        }
+        try {
+            synchronized (local) {
+                if (local.leased) {
+                    local.nonces.addFirst(nonce.longValueExact());
+                    // Sofort melden, sonst gilt die Nonce bis zur nächsten Verlängerung als verwaist
+                    renew(signer, local);
+                    return;
+                }
+            }
+            // Der Lease ist schon freigegeben, die Nonce geht direkt in den gemeinsamen Pool
+            store.modify(signer, state -> {
+                state.giveBack(nonce.longValueExact());
+                return null;
+            });
+        } catch (IOException e) {
+            logger.warn("Could not return nonce {} of signer {}: {}", nonce, signer, e.getMessage());
+        }
+    }
+
+    // Muss unter dem Monitor von local aufgerufen werden
+    private void acquire(String signer, LocalLease local, long chainPendingNonce) throws IOException {
+        long now = System.currentTimeMillis();
+        local.nonces.addAll(store.modify(signer,
+                state -> state.acquire(instanceId, rangeSize, chainPendingNonce, now, leaseTtlMillis)));
+        local.leased = true;
+        logger.debug("Leased nonces {} for signer {}", local.nonces, signer);
+    }
+
+    private static BigInteger take(LocalLease local) {
+        local.lastUse = System.currentTimeMillis();
+        return BigInteger.valueOf(local.nonces.pollFirst());
+    }
+
+    private void maintain() {
+        leases.forEach((signer, local) -> {
+            try {
+                synchronized (local) {
+                    renewOrRelease(signer, local);
+                }
+                fillGap(signer, local.credentials);
+            } catch (Exception e) {
+                logger.warn("Nonce lease maintenance for signer {} failed: {}", signer, e.getMessage());
+            }
+        });
+    }
+
+    private void renewOrRelease(String signer, LocalLease local) throws IOException {
+        if (!local.leased) {
+            return;
+        }
+        // Ungenutzte Nonces einer untätigen Instanz blockieren sonst alle höheren Nonces der anderen.
+        // Ein aufgebrauchter Lease wird ebenfalls freigegeben, damit seine Nonces nicht als unbenutzt gelten.
+        if (local.nonces.isEmpty() || System.currentTimeMillis() - local.lastUse >= leaseTtlMillis) {
+            release(signer, local);
+            return;
+        }
+        renew(signer, local);
+    }
+
+    // Muss unter dem Monitor von local aufgerufen werden
+    private void renew(String signer, LocalLease local) throws IOException {
+        long now = System.currentTimeMillis();
+        ArrayList<Long> unused = new ArrayList<>(local.nonces);
+        boolean renewed = store.modify(signer, state -> state.renew(instanceId, unused, now, leaseTtlMillis));
+        if (!renewed) {
+            // Der Lease wurde zurückgefordert, die Nonces gehören inzwischen womöglich einer anderen Instanz
+            logger.warn("Nonce lease for signer {} expired, dropping {} unused nonces", signer, unused.size());
+            local.nonces.clear();
+            local.leased = false;
+        }
+    }
+
+    // Muss unter dem Monitor von local aufgerufen werden
+    private void release(String signer, LocalLease local) {
+        ArrayList<Long> unused = new ArrayList<>(local.nonces);
+        local.nonces.clear();
+        local.leased = false;
+        try {
+            store.modify(signer, state -> {
+                state.release(instanceId, unused);
+                return null;
+            });
+        } catch (IOException e) {
+            logger.warn("Could not release nonce lease for signer {}: {}", signer, e.getMessage());
+        }
+    }
+
+    void fillGap(String signer, Credentials credentials) throws IOException {
+        long mined = web3j.ethGetTransactionCount(signer, DefaultBlockParameterName.LATEST).send()
+                .getTransactionCount().longValueExact();
+        long pending = web3j.ethGetTransactionCount(signer, DefaultBlockParameterName.PENDING).send()
+                .getTransactionCount().longValueExact();
+        // Wartet im Pool eine Transaktion mit dieser Nonce, ist sie nur zu billig, darum kümmert sich die FeeBumpEngine.
+        // Eine signierte Transaktion im Journal sendet der Abgleich erneut, ein Lückenfüller würde sie verdrängen.
+        boolean occupied = pending != mined || isJournaled(mined);
+        long now = System.currentTimeMillis();
+        Optional<Long> gap = store.modify(signer, state -> state.claimGap(mined, occupied, now, gapTimeoutMillis));
+        if (gap.isEmpty()) {
+            return;
+        }
+
+        // Leere Transaktion an sich selbst, damit die wartenden höheren Nonces gemined werden können
+        FeeQuote fees = feeBumpEngine.currentFees();
+        RawTransaction filler = fees.transaction(chainId, BigInteger.valueOf(gap.get()), TRANSFER_GAS_LIMIT, signer, "");
+        String signedTransaction = Numeric.toHexString(TransactionEncoder.signMessage(filler, chainId, credentials));
+        EthSendTransaction response = web3j.ethSendRawTransaction(signedTransaction).send();
+        if (response.hasError()) {
+            logger.warn("Gap filler for nonce {} of signer {} rejected: {}", gap.get(), signer, response.getError().getMessage());
+        } else {
+            logger.info("Sent gap filler {} for stuck nonce {} of signer {}", response.getTransactionHash(), gap.get(), signer);
+        }
+    }
+
+    private boolean isJournaled(long nonce) {
+        return journal.pendingMints().stream()
+                .flatMap(mint -> mint.transactions().stream())
+                .anyMatch(transaction -> TransactionDecoder.decode(transaction.signedTransaction()).getNonce()
+                        .longValueExact() == nonce);
+    }
+
+    private static String signerOf(Credentials credentials) {
+        return credentials.getAddress().toLowerCase();
+    }
+}
@@ -0,0 +1,106 @@
+package de.hsbi.binex.binex_backend.coordination;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+// Vergabestand der Nonces eines Signers: höchste vergebene Nonce, zurückgegebene Nonces und aktive Leases
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY, getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+public class SignerState {
+
+    public record Lease(String owner, List<Long> nonces, long expiresAt) {
+    }
+
+    private long nextNonce;
+    private TreeSet<Long> free = new TreeSet<>();
+    private Map<String, Lease> leases = new HashMap<>();
+    private long stuckNonce = -1;
+    private long stuckSince;
+
+    // Vergibt count Nonces an owner, zuerst zurückgegebene, dann neue oberhalb der bisher höchsten
+    public List<Long> acquire(String owner, int count, long chainPendingNonce, long now, long ttlMillis) {
+        reclaimExpired(now);
+        // Unterhalb des Pending-Zählers der Chain ist jede Nonce bereits verbraucht
+        free.headSet(chainPendingNonce).clear();
+        nextNonce = Math.max(nextNonce, chainPendingNonce);
+
+        List<Long> granted = new ArrayList<>(count);
+        while (granted.size() < count && !free.isEmpty()) {
+            granted.add(free.pollFirst());
+        }
+        while (granted.size() < count) {
+            granted.add(nextNonce++);
+        }
+        leases.put(owner, new Lease(owner, List.copyOf(granted), now + ttlMillis));
+        return granted;
+    }
+
+    // Meldet die noch unbenutzten Nonces, false wenn der Lease inzwischen abgelaufen und zurückgefordert ist
+    public boolean renew(String owner, List<Long> unused, long now, long ttlMillis) {
+        reclaimExpired(now);
+        if (!leases.containsKey(owner)) {
+            return false;
+        }
+        leases.put(owner, new Lease(owner, List.copyOf(unused), now + ttlMillis));
+        return true;
+    }
+
+    public void release(String owner, List<Long> unused) {
+        if (leases.remove(owner) != null) {
+            free.addAll(unused);
+        }
+    }
+
+    // Eine vergebene Nonce, die nicht verbraucht wurde und keinem Lease mehr gehört
+    public void giveBack(long nonce) {
+        if (nonce < nextNonce) {
+            free.add(nonce);
+        }
+    }
+
+    // Hängt die älteste nicht geminte Nonce länger als gapTimeout, ohne dass eine Transaktion auf sie wartet (occupied),
+    // wird sie an den Aufrufer vergeben, damit er die Lücke schließt. Das gilt auch für vergebene Nonces, deren
+    // Transaktion nie angekommen ist, nur die noch unbenutzten Nonces eines aktiven Leases bleiben ihrem Besitzer.
+    public Optional<Long> claimGap(long minedNonce, boolean occupied, long now, long gapTimeoutMillis) {
+        reclaimExpired(now);
+        if (minedNonce != stuckNonce || occupied) {
+            stuckNonce = minedNonce;
+            stuckSince = now;
+            return Optional.empty();
+        }
+        if (now - stuckSince < gapTimeoutMillis || minedNonce >= nextNonce || isLeased(minedNonce)) {
+            return Optional.empty();
+        }
+        free.remove(minedNonce);
+        stuckSince = now;
+        return Optional.of(minedNonce);
+    }
+
+    private boolean isLeased(long nonce) {
+        return leases.values().stream().anyMatch(lease -> lease.nonces().contains(nonce));
+    }
+
+    private void reclaimExpired(long now) {
+        leases.values().removeIf(lease -> {
+            if (lease.expiresAt() > now) {
+                return false;
+            }
+            free.addAll(lease.nonces());
+            return true;
+        });
+    }
+
+    public long getNextNonce() {
+        return nextNonce;
+    }
+
+    public Map<String, Lease> getLeases() {
+        return Map.copyOf(leases);
+    }
+}
@@ -0,0 +1,353 @@
+package de.hsbi.binex.binex_backend.fees;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.transaction.type.ITransaction;
+import org.web3j.crypto.transaction.type.Transaction1559;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.utils.Convert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Legt die Gebühren für Mint-Transaktionen fest und ersetzt Transaktionen, die nicht rechtzeitig
+// in einen Block kommen, durch dieselbe Nonce mit höheren Gebühren.
+@Component
+public class FeeBumpEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeeBumpEngine.class);
+
+    // Knoten akzeptieren einen Ersatz mit gleicher Nonce erst ab 10 % höheren Gebühren
+    static final int MIN_BUMP_PERCENT = 10;
+
+    public record Statistics(long stuck, long replacements, long rejectedReplacements, long capped) {
+    }
+
+    @FunctionalInterface
+    public interface Rebroadcaster {
+        // Liefert den Hash der Ersatztransaktion oder null, wenn der Knoten sie abgelehnt hat
+        String rebroadcast(RawTransaction replacement) throws IOException;
+    }
+
+    private final Web3j web3j;
+    private final String mode;
+    private final long inclusionTargetNanos;
+    private final int bumpPercent;
+    private final BigInteger maxFeePerGas;
+    private final long receiptPollIntervalMs;
+    private final long receiptTimeoutSeconds;
+
+    private volatile Boolean eip1559Supported;
+
+    private final LongAdder stuck = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+    private final LongAdder rejectedReplacements = new LongAdder();
+    private final LongAdder capped = new LongAdder();
+
+    public FeeBumpEngine(Web3j web3j,
+                         @Value("${app.fees.mode}") String mode,
+                         @Value("${app.fees.inclusion-target-seconds}") long inclusionTargetSeconds,
+                         @Value("${app.fees.bump-percent}") int bumpPercent,
+                         @Value("${app.fees.max-fee-gwei}") BigDecimal maxFeeGwei,
+                         @Value("${app.fees.receipt-poll-interval-ms}") long receiptPollIntervalMs,
+                         @Value("${app.fees.receipt-timeout-seconds}") long receiptTimeoutSeconds) {
+        this.web3j = web3j;
+        this.mode = mode.toLowerCase();
+        this.inclusionTargetNanos = TimeUnit.SECONDS.toNanos(inclusionTargetSeconds);
+        this.bumpPercent = Math.max(MIN_BUMP_PERCENT, bumpPercent);
+        this.maxFeePerGas = Convert.toWei(maxFeeGwei, Convert.Unit.GWEI).toBigInteger();
+        this.receiptPollIntervalMs = receiptPollIntervalMs;
+        this.receiptTimeoutSeconds = receiptTimeoutSeconds;
+        if (!this.mode.equals("auto") && !this.mode.equals("eip1559") && !this.mode.equals("legacy")) {
+            throw new IllegalArgumentException("app.fees.mode must be auto, eip1559 or legacy");
+        }
+    }
+
+    public FeeQuote currentFees() throws IOException {
+        try {
+            return currentFeesAsync().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching network fees");
+        } catch (ExecutionException e) {
+            throw asIOException(e.getCause());
+        }
+    }
+
+    public CompletableFuture<FeeQuote> currentFeesAsync() {
+        return supportsEip1559Async().thenCompose(eip1559 -> eip1559 ? eip1559Fees() : legacyFees());
+    }
+
+    private CompletableFuture<Boolean> supportsEip1559Async() {
+        if (mode.equals("legacy")) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (mode.equals("eip1559")) {
+            return CompletableFuture.completedFuture(true);
+        }
+        Boolean supported = eip1559Supported;
+        if (supported != null) {
+            return CompletableFuture.completedFuture(supported);
+        }
+        // Ohne baseFeePerGas im letzten Block ist London auf der Chain nicht aktiv
+        return latestBlock().thenApply(block -> {
+            boolean detected = block.getBaseFeePerGasRaw() != null;
+            eip1559Supported = detected;
+            logger.info("Network {} EIP-1559 fee fields", detected ? "supports" : "does not support");
+            return detected;
+        });
+    }
+
+    private CompletableFuture<FeeQuote> eip1559Fees() {
+        return latestBlock().thenCombine(web3j.ethMaxPriorityFeePerGas().sendAsync(), (block, priorityResponse) -> {
+            if (priorityResponse.hasError()) {
+                throw new CompletionException(new IOException(
+                        "Could not fetch max priority fee: " + priorityResponse.getError().getMessage()));
+            }
+            BigInteger priorityFee = priorityResponse.getMaxPriorityFeePerGas();
+            // Doppelte Base Fee übersteht mehrere volle Blöcke in Folge ohne Ersatz
+            BigInteger maxFee = block.getBaseFeePerGas().shiftLeft(1).add(priorityFee);
+            BigInteger cappedMaxFee = cap(maxFee);
+            return FeeQuote.eip1559(cappedMaxFee, priorityFee.min(cappedMaxFee));
+        });
+    }
+
+    private CompletableFuture<FeeQuote> legacyFees() {
+        return web3j.ethGasPrice().sendAsync().thenApply(response -> {
+            BigInteger gasPrice = response.getGasPrice().multiply(BigInteger.valueOf(105)).divide(BigInteger.valueOf(100));
+            return FeeQuote.legacy(cap(gasPrice));
+        });
+    }
+
+    private CompletableFuture<EthBlock.Block> latestBlock() {
+        return web3j.ethGetBlockByNumber(DefaultBlockParameterName.LATEST, false).sendAsync()
+                .thenApply(EthBlock::getBlock);
+    }
+
+    private BigInteger cap(BigInteger fee) {
+        if (fee.compareTo(maxFeePerGas) > 0) {
+            logger.warn("Network fee {} Wei exceeds the configured cap of {} Wei", fee, maxFeePerGas);
+            return maxFeePerGas;
+        }
+        return fee;
+    }
+
+    // Ersatz mit gleicher Nonce und Daten, aber mindestens bump-percent höheren Gebühren,
+    // leer wenn die Obergrenze keinen gültigen Ersatz mehr zulässt
+    public Optional<RawTransaction> bump(RawTransaction current, FeeQuote network) {
+        ITransaction transaction = current.getTransaction();
+        if (transaction instanceof Transaction1559 eip1559) {
+            BigInteger oldMaxFee = eip1559.getMaxFeePerGas();
+            BigInteger oldPriorityFee = eip1559.getMaxPriorityFeePerGas();
+            BigInteger maxFee = increase(oldMaxFee, bumpPercent).max(orZero(network.maxFeePerGas())).min(maxFeePerGas);
+            BigInteger priorityFee = increase(oldPriorityFee, bumpPercent).max(orZero(network.maxPriorityFeePerGas())).min(maxFee);
+            if (maxFee.compareTo(increase(oldMaxFee, MIN_BUMP_PERCENT)) < 0
+                    || priorityFee.compareTo(increase(oldPriorityFee, MIN_BUMP_PERCENT)) < 0) {
+                return Optional.empty();
+            }
+            return Optional.of(RawTransaction.createTransaction(eip1559.getChainId(), current.getNonce(),
+                    current.getGasLimit(), current.getTo(), current.getValue(), current.getData(), priorityFee, maxFee));
+        }
+
+        BigInteger oldGasPrice = current.getGasPrice();
+        BigInteger gasPrice = increase(oldGasPrice, bumpPercent).max(orZero(network.gasPrice())).min(maxFeePerGas);
+        if (gasPrice.compareTo(increase(oldGasPrice, MIN_BUMP_PERCENT)) < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(RawTransaction.createTransaction(current.getNonce(), gasPrice, current.getGasLimit(),
+                current.getTo(), current.getValue(), current.getData()));
+    }
+
+    // Wartet blockierend auf das Receipt einer der Transaktionen und ersetzt sie, wenn das Inklusionsziel verfehlt wird
+    public TransactionReceipt awaitReceipt(RawTransaction transaction, List<String> txHashes,
+                                           Rebroadcaster rebroadcaster) throws IOException, TransactionException {
+        List<String> hashes = new ArrayList<>(txHashes);
+        RawTransaction current = transaction;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(receiptTimeoutSeconds);
+        long nextBump = System.nanoTime() + inclusionTargetNanos;
+
+        while (true) {
+            for (int i = hashes.size() - 1; i >= 0; i--) {
+                Optional<TransactionReceipt> receipt = web3j.ethGetTransactionReceipt(hashes.get(i)).send().getTransactionReceipt();
+                if (receipt.isPresent()) {
+                    return receipt.get();
+                }
+            }
+
+            long now = System.nanoTime();
+            String latestHash = hashes.get(hashes.size() - 1);
+            if (now - deadline >= 0) {
+                throw new TransactionException("Transaction receipt was not generated after " + receiptTimeoutSeconds
+                        + " seconds for transaction: " + latestHash, latestHash);
+            }
+            if (now - nextBump >= 0) {
+                nextBump = now + inclusionTargetNanos;
+                try {
+                    Optional<RawTransaction> replacement = replacementFor(current, currentFees(), latestHash);
+                    if (replacement.isPresent()) {
+                        String replacementHash = rebroadcaster.rebroadcast(replacement.get());
+                        if (recordReplacement(latestHash, replacementHash)) {
+                            hashes.add(replacementHash);
+                            current = replacement.get();
+                        }
+                    }
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    // Wie im reaktiven Pfad: ein fehlgeschlagener Ersatz ist kein Fehler des Mints,
+                    // die bisherigen Transaktionen bleiben gültig und werden weiter abgefragt
+                    logger.warn("Could not replace stuck transaction {}: {}", latestHash, e.getMessage());
+                }
+            }
+
+            try {
+                Thread.sleep(receiptPollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for transaction " + latestHash);
+            }
+        }
+    }
+
+    // Nicht-blockierende Variante für den reaktiven Mint-Pfad, zwischen den Abfragen ist kein Thread belegt
+    // Mit dem konfigurierten Abfrageintervall und Timeout, für Aufrufer ohne eigene Request-Deadline wie den MintBatcher
+    public Mono<TransactionReceipt> awaitReceiptAsync(RawTransaction transaction, String txHash,
+                                                      Function<RawTransaction, CompletableFuture<String>> rebroadcaster) {
+        return awaitReceiptAsync(transaction, txHash, Duration.ofMillis(receiptPollIntervalMs), rebroadcaster)
+                .timeout(Duration.ofSeconds(receiptTimeoutSeconds), Mono.error(() -> new TransactionException(
+                        "Transaction receipt was not generated after " + receiptTimeoutSeconds
+                                + " seconds for transaction: " + txHash, txHash)));
+    }
+
+    public Mono<TransactionReceipt> awaitReceiptAsync(RawTransaction transaction, String txHash, Duration pollInterval,
+                                                      Function<RawTransaction, CompletableFuture<String>> rebroadcaster) {
+        PendingTransaction pending = new PendingTransaction(transaction, txHash, System.nanoTime() + inclusionTargetNanos);
+        return Mono.defer(() -> findReceiptAsync(pending.hashes()))
+                .switchIfEmpty(Mono.defer(() -> bumpIfStuckAsync(pending, rebroadcaster)).then(Mono.empty()))
+                .repeatWhenEmpty(attempts -> attempts.delayElements(pollInterval));
+    }
+
+    private Mono<TransactionReceipt> findReceiptAsync(List<String> hashes) {
+        return Flux.fromIterable(hashes)
+                .concatMap(hash -> Mono.fromFuture(() -> web3j.ethGetTransactionReceipt(hash).sendAsync())
+                        .flatMap(response -> Mono.justOrEmpty(response.getTransactionReceipt())))
+                .next();
+    }
+
+    private Mono<Void> bumpIfStuckAsync(PendingTransaction pending,
+                                        Function<RawTransaction, CompletableFuture<String>> rebroadcaster) {
+        long now = System.nanoTime();
+        if (now - pending.nextBump < 0) {
+            return Mono.empty();
+        }
+        pending.nextBump = now + inclusionTargetNanos;
+        String latestHash = pending.latestHash();
+        return Mono.fromFuture(this::currentFeesAsync)
+                .flatMap(network -> Mono.justOrEmpty(replacementFor(pending.current, network, latestHash)))
+                .flatMap(replacement -> Mono.fromFuture(() -> rebroadcaster.apply(replacement))
+                        .defaultIfEmpty("")
+                        .doOnNext(replacementHash -> {
+                            if (recordReplacement(latestHash, replacementHash.isEmpty() ? null : replacementHash)) {
+                                pending.replaced(replacement, replacementHash);
+                            }
+                        }))
+                // Ein fehlgeschlagener Ersatz ist kein Fehler des Mints, die bisherigen Transaktionen bleiben gültig
+                .onErrorResume(e -> {
+                    logger.warn("Could not replace stuck transaction {}: {}", latestHash, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Optional<RawTransaction> replacementFor(RawTransaction current, FeeQuote network, String latestHash) {
+        stuck.increment();
+        Optional<RawTransaction> replacement = bump(current, network);
+        if (replacement.isEmpty()) {
+            capped.increment();
+            logger.warn("Transaction {} missed the inclusion target but fees are already at the cap", latestHash);
+        }
+        return replacement;
+    }
+
+    private boolean recordReplacement(String latestHash, String replacementHash) {
+        if (replacementHash == null) {
+            rejectedReplacements.increment();
+            return false;
+        }
+        replacements.increment();
+        logger.info("Replaced stuck transaction {} with {}", latestHash, replacementHash);
+        return true;
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(stuck.sum(), replacements.sum(), rejectedReplacements.sum(), capped.sum());
+    }
+
+    static BigInteger increase(BigInteger fee, int percent) {
+        // Aufrunden, damit auch sehr kleine Gebühren die Mindesterhöhung erreichen
+        return fee.multiply(BigInteger.valueOf(100L + percent)).add(BigInteger.valueOf(99)).divide(BigInteger.valueOf(100));
+    }
+
+    private static BigInteger orZero(BigInteger value) {
+        return value != null ? value : BigInteger.ZERO;
+    }
+
+    private static IOException asIOException(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+    }
+
+    // Zustand einer wartenden Transaktion, die Abfragen laufen durch repeatWhenEmpty nacheinander
+    private static final class PendingTransaction {
+
+        private final List<String> hashes = new ArrayList<>();
+        private volatile RawTransaction current;
+        private volatile long nextBump;
+
+        private PendingTransaction(RawTransaction current, String txHash, long nextBump) {
+            this.current = current;
+            this.hashes.add(txHash);
+            this.nextBump = nextBump;
+        }
+
+        // Neueste zuerst, die zuletzt ersetzte Transaktion ist am wahrscheinlichsten im Block
+        private synchronized List<String> hashes() {
+            List<String> newestFirst = new ArrayList<>(hashes);
+            Collections.reverse(newestFirst);
+            return newestFirst;
+        }
+
+        private synchronized String latestHash() {
+            return hashes.get(hashes.size() - 1);
+        }
+
+        private synchronized void replaced(RawTransaction replacement, String txHash) {
+            current = replacement;
+            hashes.add(txHash);
+        }
+    }
+}
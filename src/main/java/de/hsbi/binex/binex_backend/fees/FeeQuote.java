@@ -0,0 +1,39 @@
+package de.hsbi.binex.binex_backend.fees;
+
+import org.web3j.crypto.RawTransaction;
+import org.web3j.tx.gas.ContractGasProvider;
+import org.web3j.tx.gas.StaticEIP1559GasProvider;
+import org.web3j.tx.gas.StaticGasProvider;
+
+import java.math.BigInteger;
+
+// Gebühren für eine neue Transaktion, entweder als EIP-1559-Felder oder als klassischer Gaspreis
+public record FeeQuote(boolean eip1559, BigInteger gasPrice, BigInteger maxFeePerGas, BigInteger maxPriorityFeePerGas) {
+
+    public static FeeQuote legacy(BigInteger gasPrice) {
+        return new FeeQuote(false, gasPrice, null, null);
+    }
+
+    public static FeeQuote eip1559(BigInteger maxFeePerGas, BigInteger maxPriorityFeePerGas) {
+        return new FeeQuote(true, null, maxFeePerGas, maxPriorityFeePerGas);
+    }
+
+    public ContractGasProvider gasProvider(long chainId, BigInteger gasLimit) {
+        return eip1559
+                ? new StaticEIP1559GasProvider(chainId, maxFeePerGas, maxPriorityFeePerGas, gasLimit)
+                : new StaticGasProvider(gasPrice, gasLimit);
+    }
+
+    public RawTransaction transaction(long chainId, BigInteger nonce, BigInteger gasLimit, String to, String data) {
+        return eip1559
+                ? RawTransaction.createTransaction(chainId, nonce, gasLimit, to, BigInteger.ZERO, data, maxPriorityFeePerGas, maxFeePerGas)
+                : RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, data);
+    }
+
+    @Override
+    public String toString() {
+        return eip1559
+                ? "maxFeePerGas=" + maxFeePerGas + " Wei, maxPriorityFeePerGas=" + maxPriorityFeePerGas + " Wei"
+                : "gasPrice=" + gasPrice + " Wei";
+    }
+}
@@ -0,0 +1,101 @@
+package de.hsbi.binex.binex_backend.journal;
+
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.monitoring.MintStage;
+import de.hsbi.binex.binex_backend.monitoring.MintTrace;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.tx.RawTransactionManager;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+// Schreibt jede signierte Transaktion ins Journal, bevor sie an den Knoten geht
+// und ersetzt sie über die FeeBumpEngine, wenn sie nicht rechtzeitig in einen Block kommt
+public class JournalingTransactionManager extends RawTransactionManager {
+
+    private final MintTransactionSender sender;
+    private final List<String> tokenIds;
+    private final MintTrace trace;
+    private final FeeBumpEngine feeBumpEngine;
+    private final NonceCoordinator nonceCoordinator;
+    private final Credentials credentials;
+
+    private RawTransaction sentTransaction;
+
+    public JournalingTransactionManager(Web3j web3j, Credentials credentials, long chainId,
+                                        MintJournal journal, String tokenId, MintTrace trace,
+                                        FeeBumpEngine feeBumpEngine, NonceCoordinator nonceCoordinator) {
+        this(web3j, credentials, chainId, journal, List.of(tokenId), trace, feeBumpEngine, nonceCoordinator);
+    }
+
+    // Eine Transaktion für mehrere Journal-Einträge, z.B. ein batchMintTo
+    public JournalingTransactionManager(Web3j web3j, Credentials credentials, long chainId,
+                                        MintJournal journal, List<String> tokenIds, MintTrace trace,
+                                        FeeBumpEngine feeBumpEngine, NonceCoordinator nonceCoordinator) {
+        super(web3j, credentials, chainId);
+        this.sender = new MintTransactionSender(web3j, journal, nonceCoordinator, chainId);
+        this.tokenIds = List.copyOf(tokenIds);
+        this.trace = trace;
+        this.feeBumpEngine = feeBumpEngine;
+        this.nonceCoordinator = nonceCoordinator;
+        this.credentials = credentials;
+    }
+
+    // Nonces kommen aus dem mit den anderen Instanzen abgestimmten Lease statt aus eth_getTransactionCount
+    @Override
+    protected BigInteger getNonce() throws IOException {
+        return nonceCoordinator.nextNonce(credentials);
+    }
+
+    @Override
+    public EthSendTransaction signAndSend(RawTransaction rawTransaction) throws IOException {
+        long stageStart = trace.start();
+        MintTransactionSender.Sent sent = await(sender.send(credentials, rawTransaction, tokenIds));
+        trace.record(MintStage.SEND, stageStart);
+        sentTransaction = sent.transaction();
+
+        EthSendTransaction response = new EthSendTransaction();
+        response.setResult(sent.txHash());
+        return response;
+    }
+
+    // Signiert einen Ersatz mit gleicher Nonce, ein abgelehnter Ersatz lässt die bisherigen Transaktionen gültig
+    public String replace(RawTransaction replacement) throws IOException {
+        return await(sender.replace(credentials, replacement, tokenIds));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while sending the transaction");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw cause instanceof IOException io ? io : new IOException(cause);
+        }
+    }
+
+    @Override
+    protected TransactionReceipt processResponse(EthSendTransaction response) throws IOException, TransactionException {
+        if (response.hasError() || sentTransaction == null) {
+            return super.processResponse(response);
+        }
+        return feeBumpEngine.awaitReceipt(sentTransaction, List.of(response.getTransactionHash()), this::replace);
+    }
+}
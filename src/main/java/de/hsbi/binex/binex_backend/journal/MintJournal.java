@@ -0,0 +1,485 @@
+package de.hsbi.binex.binex_backend.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only Write-Ahead-Journal für Mint-Vorgänge auf Basis einer memory-mapped Datei.
+ * <p>
+ * Aufbau: Header (Magic, Version), danach Einträge der Form
+ * {@code [int Länge][int CRC32][Payload]}. Eine Länge von 0 markiert das Ende. Die Länge wird
+ * zuletzt geschrieben, damit ein abgebrochener Schreibvorgang beim Einlesen als Ende erkannt wird.
+ * <p>
+ * Absicht und signierte Transaktion werden erst bestätigt, wenn sie auf der Platte liegen.
+ * Ein einzelner Flusher-Thread fasst dafür alle wartenden Einträge zu einem {@code force()}
+ * zusammen (Group Commit). Abschlüsse werden nur angehängt und mit dem nächsten Flush geschrieben.
+ * <p>
+ * Mehrere Instanzen können sich das Verzeichnis teilen. Jede schreibt in eine eigene Datei
+ * {@code <name>-<id>.<endung>} und hält für ihre Laufzeit eine exklusive Sperre auf {@code <datei>.lock}.
+ * Beim Start werden Journale übernommen, deren Sperre frei ist, weil ihre Instanz beendet wurde.
+ */
+@Component
+public class MintJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(MintJournal.class);
+
+    private static final int MAGIC = 0x424E584A;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private enum RecordType {INTENT, SIGNED, CONFIRMED, FAILED}
+
+    private record DurableWaiter(long sequence, CompletableFuture<Void> future) {
+    }
+
+    private record Orphan(Path file, FileChannel lockChannel) {
+    }
+
+    @Value("${app.journal.path}")
+    private String path;
+
+    @Value("${app.journal.size-bytes}")
+    private int capacity;
+
+    @Value("${app.journal.group-commit-window-ms}")
+    private long groupCommitWindowMs;
+
+    // Alle folgenden Felder sind durch den Monitor dieser Instanz geschützt
+    private final Map<String, PendingMint> pending = new LinkedHashMap<>();
+    private final Queue<DurableWaiter> durableWaiters = new ArrayDeque<>();
+    private Path file;
+    private FileChannel lockChannel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean closed;
+
+    private volatile boolean ready;
+    private Thread flusher;
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Path base = Path.of(path).toAbsolutePath();
+        Files.createDirectories(base.getParent());
+        String name = base.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+
+        file = base.resolveSibling(stem + "-" + UUID.randomUUID() + extension);
+        lockChannel = FileChannel.open(lockFile(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lockChannel.lock();
+
+        List<Orphan> orphans = lockOrphans(base, stem, extension);
+        for (Orphan orphan : orphans) {
+            replay(orphan.file());
+        }
+        compact();
+        // Erst löschen, wenn die offenen Einträge sicher in der eigenen Datei stehen
+        for (Orphan orphan : orphans) {
+            Files.deleteIfExists(orphan.file());
+            Files.deleteIfExists(orphan.file().resolveSibling(orphan.file().getFileName() + ".tmp"));
+            Files.deleteIfExists(lockFile(orphan.file()));
+            orphan.lockChannel().close();
+        }
+        logger.info("Mint journal opened at {} with {} pending entries, adopted {} journals of stopped instances",
+                file, pending.size(), orphans.size());
+
+        flusher = new Thread(this::flushLoop, "mint-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        if (flusher != null) {
+            flusher.join();
+        }
+        synchronized (this) {
+            if (buffer != null) {
+                buffer.force();
+            }
+            if (lockChannel == null) {
+                return;
+            }
+            // Ein leeres Journal muss niemand übernehmen, die Sperrdatei wird noch unter der Sperre gelöscht
+            if (pending.isEmpty()) {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(lockFile(file));
+            }
+            lockChannel.close();
+            lockChannel = null;
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public void recordIntent(String tokenId, String receiver, String surveyId, String tokenURI) throws IOException {
+        awaitDurable(append(RecordType.INTENT, System.currentTimeMillis(), tokenId, receiver, surveyId, tokenURI));
+    }
+
+    public void recordSigned(String tokenId, String txHash, String signedTransaction) throws IOException {
+        awaitDurable(append(RecordType.SIGNED, System.currentTimeMillis(), tokenId, txHash, signedTransaction));
+    }
+
+    // Nicht-blockierende Varianten: das Future wird vom Flusher nach dem force() abgeschlossen
+    public CompletableFuture<Void> recordIntentAsync(String tokenId, String receiver, String surveyId, String tokenURI) {
+        try {
+            return whenDurable(append(RecordType.INTENT, System.currentTimeMillis(), tokenId, receiver, surveyId, tokenURI));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public CompletableFuture<Void> recordSignedAsync(String tokenId, String txHash, String signedTransaction) {
+        try {
+            return whenDurable(append(RecordType.SIGNED, System.currentTimeMillis(), tokenId, txHash, signedTransaction));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public void recordConfirmed(String tokenId, String txHash) throws IOException {
+        append(RecordType.CONFIRMED, System.currentTimeMillis(), tokenId, txHash);
+    }
+
+    public void recordFailed(String tokenId, String reason) throws IOException {
+        append(RecordType.FAILED, System.currentTimeMillis(), tokenId, reason == null ? "" : reason);
+    }
+
+    public synchronized List<PendingMint> pendingMints() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized Optional<PendingMint> pendingMint(String tokenId) {
+        return Optional.ofNullable(pending.get(tokenId));
+    }
+
+    private synchronized long append(RecordType type, long timestamp, String... fields) throws IOException {
+        if (closed) {
+            throw new IOException("Mint journal is closed.");
+        }
+        byte[] payload = encode(type, timestamp, fields);
+        if (!fits(payload.length)) {
+            compact();
+            if (!fits(payload.length)) {
+                throw new IOException("Mint journal is full (" + pending.size() + " pending entries).");
+            }
+        }
+        writeRecord(buffer, writePosition, payload);
+        writePosition += RECORD_HEADER_SIZE + payload.length;
+        apply(type, timestamp, fields);
+
+        appendedSequence++;
+        notifyAll();
+        return appendedSequence;
+    }
+
+    private boolean fits(int payloadLength) {
+        // Platz für den abschließenden Null-Eintrag freihalten
+        return (long) writePosition + RECORD_HEADER_SIZE + payloadLength + 4 <= capacity;
+    }
+
+    private synchronized void awaitDurable(long sequence) throws IOException {
+        try {
+            while (durableSequence < sequence) {
+                if (closed) {
+                    throw new IOException("Mint journal was closed before the entry was flushed.");
+                }
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the mint journal flush.", e);
+        }
+    }
+
+    private synchronized CompletableFuture<Void> whenDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        durableWaiters.add(new DurableWaiter(sequence, future));
+        return future;
+    }
+
+    private void completeDurableWaiters() {
+        List<CompletableFuture<Void>> completed = new ArrayList<>();
+        synchronized (this) {
+            while (!durableWaiters.isEmpty() && durableWaiters.peek().sequence() <= durableSequence) {
+                completed.add(durableWaiters.poll().future());
+            }
+        }
+        // Außerhalb des Monitors abschließen, damit Folgeschritte das Journal nicht blockieren
+        completed.forEach(future -> future.complete(null));
+    }
+
+    private boolean hasDurableWaitersReady() {
+        return !durableWaiters.isEmpty() && durableWaiters.peek().sequence() <= durableSequence;
+    }
+
+    private void failDurableWaiters() {
+        List<CompletableFuture<Void>> failed = new ArrayList<>();
+        synchronized (this) {
+            while (!durableWaiters.isEmpty()) {
+                failed.add(durableWaiters.poll().future());
+            }
+        }
+        failed.forEach(future -> future.completeExceptionally(new IOException("Mint journal was closed.")));
+    }
+
+    private void flushLoop() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (!closed && durableSequence >= appendedSequence && !hasDurableWaitersReady()) {
+                        wait();
+                    }
+                    if (closed) {
+                        break;
+                    }
+                }
+                completeDurableWaiters();
+
+                // Kurz warten, damit weitere Anfragen in denselben Flush fallen
+                if (groupCommitWindowMs > 0) {
+                    Thread.sleep(groupCommitWindowMs);
+                }
+
+                MappedByteBuffer target;
+                long sequence;
+                synchronized (this) {
+                    target = buffer;
+                    sequence = appendedSequence;
+                }
+                target.force();
+
+                synchronized (this) {
+                    durableSequence = Math.max(durableSequence, sequence);
+                    notifyAll();
+                }
+                completeDurableWaiters();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Mint journal flusher stopped", e);
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+        }
+        failDurableWaiters();
+    }
+
+    private void apply(RecordType type, long timestamp, String[] fields) {
+        String tokenId = fields[0];
+        switch (type) {
+            case INTENT -> {
+                PendingMint previous = pending.get(tokenId);
+                // Bei einem erneuten Versuch bleiben ältere Transaktionen für den Abgleich erhalten
+                List<SignedTransaction> transactions = previous == null ? List.of() : previous.transactions();
+                pending.put(tokenId, new PendingMint(tokenId, fields[1], fields[2], fields[3], timestamp, transactions));
+            }
+            case SIGNED -> pending.computeIfPresent(tokenId,
+                    (key, mint) -> mint.withTransaction(new SignedTransaction(fields[1], fields[2])));
+            case CONFIRMED, FAILED -> pending.remove(tokenId);
+        }
+    }
+
+    // Sperrt alle Journale im Verzeichnis, deren Instanz nicht mehr läuft
+    private List<Orphan> lockOrphans(Path base, String stem, String extension) throws IOException {
+        List<Path> candidates;
+        try (Stream<Path> files = Files.list(base.getParent())) {
+            candidates = files.filter(candidate -> !candidate.equals(file))
+                    .filter(candidate -> {
+                        String name = candidate.getFileName().toString();
+                        // Die Datei ohne Instanz-ID stammt aus der Zeit vor den Sperren
+                        return name.equals(base.getFileName().toString())
+                                || name.startsWith(stem + "-") && name.endsWith(extension)
+                                && !name.endsWith(".lock") && !name.endsWith(".tmp");
+                    })
+                    .sorted()
+                    .toList();
+        }
+
+        List<Orphan> orphans = new ArrayList<>();
+        for (Path candidate : candidates) {
+            FileChannel channel = FileChannel.open(lockFile(candidate), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // Gehört einer anderen Instanz in dieser JVM
+                lock = null;
+            }
+            if (lock == null) {
+                channel.close();
+            } else if (!Files.exists(candidate)) {
+                // Eine andere Instanz hat das Journal bereits übernommen
+                Files.deleteIfExists(lockFile(candidate));
+                channel.close();
+            } else {
+                orphans.add(new Orphan(candidate, channel));
+            }
+        }
+        return orphans;
+    }
+
+    private static Path lockFile(Path journal) {
+        return journal.resolveSibling(journal.getFileName() + ".lock");
+    }
+
+    private void replay(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return;
+            }
+            MappedByteBuffer existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (existing.getInt(0) != MAGIC || existing.getInt(4) != VERSION) {
+                throw new IOException("Unknown mint journal format in " + source);
+            }
+
+            int position = HEADER_SIZE;
+            int records = 0;
+            while (position + RECORD_HEADER_SIZE <= existing.limit()) {
+                int length = existing.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER_SIZE + length > existing.limit()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                existing.get(position + RECORD_HEADER_SIZE, payload);
+                if (crc(payload) != existing.getInt(position + 4)) {
+                    logger.warn("Mint journal contains a torn entry at offset {}, ignoring the rest", position);
+                    break;
+                }
+                decodeAndApply(payload);
+                position += RECORD_HEADER_SIZE + length;
+                records++;
+            }
+            logger.info("Replayed {} mint journal entries from {}", records, source);
+        }
+    }
+
+    // Schreibt nur die offenen Einträge in eine neue Datei und ersetzt die alte atomar
+    private void compact() throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+
+        MappedByteBuffer compacted;
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            compacted = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        compacted.putInt(0, MAGIC);
+        compacted.putInt(4, VERSION);
+
+        int position = HEADER_SIZE;
+        for (PendingMint mint : pending.values()) {
+            List<byte[]> payloads = new ArrayList<>();
+            payloads.add(encode(RecordType.INTENT, mint.createdAt(),
+                    mint.tokenId(), mint.receiver(), mint.surveyId(), mint.tokenURI()));
+            for (SignedTransaction transaction : mint.transactions()) {
+                payloads.add(encode(RecordType.SIGNED, mint.createdAt(),
+                        mint.tokenId(), transaction.txHash(), transaction.signedTransaction()));
+            }
+            for (byte[] payload : payloads) {
+                if ((long) position + RECORD_HEADER_SIZE + payload.length + 4 > capacity) {
+                    throw new IOException("Pending mints exceed the mint journal capacity of " + capacity + " bytes.");
+                }
+                writeRecord(compacted, position, payload);
+                position += RECORD_HEADER_SIZE + payload.length;
+            }
+        }
+        compacted.force();
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        buffer = compacted;
+        writePosition = position;
+        durableSequence = appendedSequence;
+        notifyAll();
+    }
+
+    private static void writeRecord(ByteBuffer target, int position, byte[] payload) {
+        target.putInt(position + 4, crc(payload));
+        target.put(position + RECORD_HEADER_SIZE, payload);
+        target.putInt(position, payload.length);
+    }
+
+    private static byte[] encode(RecordType type, long timestamp, String... fields) {
+        byte[][] encodedFields = new byte[fields.length][];
+        int length = 1 + Long.BYTES + Short.BYTES;
+        for (int i = 0; i < fields.length; i++) {
+            encodedFields[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+            length += Integer.BYTES + encodedFields[i].length;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        payload.put((byte) type.ordinal());
+        payload.putLong(timestamp);
+        payload.putShort((short) fields.length);
+        for (byte[] field : encodedFields) {
+            payload.putInt(field.length);
+            payload.put(field);
+        }
+        return payload.array();
+    }
+
+    private void decodeAndApply(byte[] bytes) {
+        ByteBuffer payload = ByteBuffer.wrap(bytes);
+        RecordType type = RecordType.values()[payload.get()];
+        long timestamp = payload.getLong();
+        String[] fields = new String[payload.getShort()];
+        for (int i = 0; i < fields.length; i++) {
+            byte[] field = new byte[payload.getInt()];
+            payload.get(field);
+            fields[i] = new String(field, StandardCharsets.UTF_8);
+        }
+        apply(type, timestamp, fields);
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
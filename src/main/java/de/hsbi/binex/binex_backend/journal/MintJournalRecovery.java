@@ -0,0 +1,233 @@
+package de.hsbi.binex.binex_backend.journal;
+
+import de.hsbi.binex.binex_backend.contracts.BinexNFT;
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.monitoring.MintTrace;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.gas.StaticGasProvider;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Gleicht nach einem Neustart alle offenen Journal-Einträge mit der Blockchain ab,
+// im laufenden Betrieb regelmäßig die Einträge, auf deren Receipt niemand mehr wartet
+@Component
+public class MintJournalRecovery implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MintJournalRecovery.class);
+
+    private final MintJournal journal;
+    private final Web3j web3j;
+    private final FeeBumpEngine feeBumpEngine;
+    private final NonceCoordinator nonceCoordinator;
+
+    @Value("${app.contract.address}")
+    private String contractAddress;
+
+    @Value("${app.qblockchain.chainId}")
+    private long chainId;
+
+    @Value("${app.journal.recovery-retry-ms}")
+    private long retryDelayMs;
+
+    @Value("${app.journal.reconcile-interval-seconds}")
+    private long reconcileIntervalSeconds;
+
+    // Erst nach dieser Zeit hat jeder Mint-Pfad das Warten auf das Receipt aufgegeben
+    @Value("${app.fees.receipt-timeout-seconds}")
+    private long receiptTimeoutSeconds;
+
+    private ScheduledExecutorService reconciler;
+
+    public MintJournalRecovery(MintJournal journal, Web3j web3j, FeeBumpEngine feeBumpEngine,
+                               NonceCoordinator nonceCoordinator) {
+        this.journal = journal;
+        this.web3j = web3j;
+        this.feeBumpEngine = feeBumpEngine;
+        this.nonceCoordinator = nonceCoordinator;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mint-journal-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileStale, reconcileIntervalSeconds, reconcileIntervalSeconds,
+                TimeUnit.SECONDS);
+
+        if (journal.pendingMints().isEmpty()) {
+            journal.markReady();
+            return;
+        }
+        Thread recovery = new Thread(this::recoverUntilDone, "mint-journal-recovery");
+        recovery.setDaemon(true);
+        recovery.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    // Nach einem Receipt-Timeout oder Fehlern beim Abfragen bliebe ein Eintrag sonst bis zum nächsten Neustart offen
+    void reconcileStale() {
+        // Bis zur ersten Wiederherstellung ist recoverUntilDone zuständig
+        if (!journal.isReady()) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(receiptTimeoutSeconds);
+        List<PendingMint> stale = journal.pendingMints().stream().filter(mint -> mint.createdAt() < cutoff).toList();
+        if (stale.isEmpty()) {
+            return;
+        }
+        logger.info("Reconciling {} pending mints older than {} seconds", stale.size(), receiptTimeoutSeconds);
+        for (PendingMint mint : stale) {
+            try {
+                reconcile(mint);
+            } catch (Exception e) {
+                logger.warn("Could not reconcile pending mint for tokenId {}: {}", mint.tokenId(), e.getMessage());
+            }
+        }
+    }
+
+    private void recoverUntilDone() {
+        while (true) {
+            List<PendingMint> pendingMints = journal.pendingMints();
+            logger.info("Reconciling {} pending mints from the journal", pendingMints.size());
+
+            int unresolved = 0;
+            for (PendingMint mint : pendingMints) {
+                try {
+                    reconcile(mint);
+                } catch (Exception e) {
+                    unresolved++;
+                    logger.warn("Could not reconcile pending mint for tokenId {}: {}", mint.tokenId(), e.getMessage());
+                }
+            }
+
+            if (unresolved == 0) {
+                logger.info("Mint journal reconciled, accepting new participations");
+                journal.markReady();
+                return;
+            }
+
+            try {
+                Thread.sleep(retryDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    void reconcile(PendingMint mint) throws Exception {
+        // 1. Gibt es für eine unserer Transaktionen bereits ein Receipt?
+        List<SignedTransaction> transactions = mint.transactions();
+        BigInteger tokenId = new BigInteger(mint.tokenId(), 16);
+        TransactionReceipt included = null;
+        for (int i = transactions.size() - 1; i >= 0; i--) {
+            String txHash = transactions.get(i).txHash();
+            Optional<TransactionReceipt> receipt = web3j.ethGetTransactionReceipt(txHash).send().getTransactionReceipt();
+            if (receipt.isPresent()) {
+                included = receipt.get();
+                break;
+            }
+        }
+        // Ein Batch kann erfolgreich sein und den Token trotzdem übersprungen haben
+        if (included != null && (!included.isStatusOK() || mintsToken(included, tokenId))) {
+            recordOutcome(mint, included);
+            return;
+        }
+
+        // 2. Existiert der Token bereits, z.B. durch einen späteren Versuch?
+        BinexNFT contract = BinexNFT.load(
+                contractAddress,
+                web3j,
+                Credentials.create("0x0"),
+                new StaticGasProvider(BigInteger.ZERO, BigInteger.ZERO)
+        );
+        if (contract.exists(tokenId).send()) {
+            String owner = contract.ownerOf(tokenId).send();
+            if (owner.equalsIgnoreCase(mint.receiver())) {
+                logger.info("Pending mint for tokenId {} is already on chain", mint.tokenId());
+                journal.recordConfirmed(mint.tokenId(), "");
+            } else {
+                journal.recordFailed(mint.tokenId(), "Token is owned by " + owner);
+            }
+            return;
+        }
+        if (included != null) {
+            journal.recordFailed(mint.tokenId(), "Skipped in batch " + included.getTransactionHash());
+            return;
+        }
+
+        // 3. Nie gesendet: der Teilnehmer hat keine Erfolgsmeldung erhalten
+        SignedTransaction latest = mint.latestTransaction();
+        if (latest == null) {
+            logger.info("Pending mint for tokenId {} was never broadcast, marking as failed", mint.tokenId());
+            journal.recordFailed(mint.tokenId(), "Never broadcast before restart");
+            return;
+        }
+
+        // 4. Letzte signierte Transaktion erneut senden und auf das Receipt warten, bei Bedarf mit höheren Gebühren
+        EthSendTransaction response = web3j.ethSendRawTransaction(latest.signedTransaction()).send();
+        if (response.hasError() && !MintTransactionSender.isAlreadyKnown(response.getError().getMessage())) {
+            logger.warn("Rebroadcast of {} rejected: {}", latest.txHash(), response.getError().getMessage());
+            journal.recordFailed(mint.tokenId(), "Rebroadcast rejected: " + response.getError().getMessage());
+            return;
+        }
+        logger.info("Rebroadcast pending transaction {} for tokenId {}", latest.txHash(), mint.tokenId());
+
+        RawTransaction transaction = TransactionDecoder.decode(latest.signedTransaction());
+        List<String> txHashes = transactions.stream().map(SignedTransaction::txHash).toList();
+        TransactionReceipt receipt = feeBumpEngine.awaitReceipt(transaction, txHashes, replacementSender(mint));
+        recordOutcome(mint, receipt);
+    }
+
+    private FeeBumpEngine.Rebroadcaster replacementSender(PendingMint mint) {
+        String privateKey = System.getenv("PRIVATE_KEY");
+        if (privateKey == null || privateKey.isEmpty()) {
+            // Ohne Schlüssel kann nicht neu signiert werden, es bleibt beim Warten
+            return replacement -> null;
+        }
+        JournalingTransactionManager transactionManager = new JournalingTransactionManager(
+                web3j, Credentials.create(privateKey), chainId, journal, mint.tokenId(), new MintTrace("recovery"), feeBumpEngine,
+                nonceCoordinator);
+        return transactionManager::replace;
+    }
+
+    private static boolean mintsToken(TransactionReceipt receipt, BigInteger tokenId) {
+        return BinexNFT.getTransferEvents(receipt).stream().anyMatch(transfer -> transfer.tokenId.equals(tokenId));
+    }
+
+    private void recordOutcome(PendingMint mint, TransactionReceipt receipt) throws Exception {
+        if (receipt.isStatusOK()) {
+            logger.info("Pending mint for tokenId {} confirmed in transaction {}", mint.tokenId(), receipt.getTransactionHash());
+            journal.recordConfirmed(mint.tokenId(), receipt.getTransactionHash());
+        } else {
+            logger.warn("Pending mint for tokenId {} reverted in transaction {}", mint.tokenId(), receipt.getTransactionHash());
+            journal.recordFailed(mint.tokenId(), "Reverted in " + receipt.getTransactionHash());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package de.hsbi.binex.binex_backend.journal;
+
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.tx.exceptions.TxHashMismatchException;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Signiert eine Mint-Transaktion, hält sie im Journal fest und sendet sie an den Knoten.
+// Gemeinsam für den blockierenden (JournalingTransactionManager) und den reaktiven Pfad.
+@Component
+public class MintTransactionSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(MintTransactionSender.class);
+
+    public record Sent(RawTransaction transaction, String txHash) {
+    }
+
+    private record Attempt(String txHash, EthSendTransaction response) {
+    }
+
+    private final Web3j web3j;
+    private final MintJournal journal;
+    private final NonceCoordinator nonceCoordinator;
+    private final long chainId;
+
+    public MintTransactionSender(Web3j web3j, MintJournal journal, NonceCoordinator nonceCoordinator,
+                                 @Value("${app.qblockchain.chainId}") long chainId) {
+        this.web3j = web3j;
+        this.journal = journal;
+        this.nonceCoordinator = nonceCoordinator;
+        this.chainId = chainId;
+    }
+
+    // Erste Transaktion mit einer neu vergebenen Nonce, schlägt bei Ablehnung durch den Knoten fehl
+    public CompletableFuture<Sent> send(Credentials credentials, RawTransaction transaction, List<String> tokenIds) {
+        return broadcast(credentials, transaction, tokenIds).handle((attempt, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                // Ohne Antwort des Knotens gilt die Nonce als unbenutzt. Ist die Transaktion doch angekommen,
+                // lehnt der Knoten die nächste mit dieser Nonce ab, bleibt die Nonce hängen, schließt der NonceCoordinator die Lücke.
+                nonceCoordinator.returnNonce(credentials, transaction.getNonce());
+                recordFailed(tokenIds, "Not sent: " + cause.getMessage());
+                throw new CompletionException(cause);
+            }
+            EthSendTransaction response = attempt.response();
+            if (isRejected(response)) {
+                String message = response.getError().getMessage();
+                if (!isNonceConsumed(message)) {
+                    nonceCoordinator.returnNonce(credentials, transaction.getNonce());
+                }
+                // Der Knoten hat die Transaktion abgelehnt, sie kann nicht mehr gemined werden
+                recordFailed(tokenIds, "Rejected by node: " + message);
+                throw new CompletionException(new IOException("Error processing transaction request: " + message));
+            }
+            if (!response.hasError() && !attempt.txHash().equalsIgnoreCase(response.getTransactionHash())) {
+                throw new CompletionException(new TxHashMismatchException(attempt.txHash(), response.getTransactionHash()));
+            }
+            return new Sent(transaction, attempt.txHash());
+        });
+    }
+
+    // Ersatz mit gleicher Nonce, liefert null bei Ablehnung, die bisherigen Transaktionen bleiben dann gültig
+    public CompletableFuture<String> replace(Credentials credentials, RawTransaction replacement, List<String> tokenIds) {
+        return broadcast(credentials, replacement, tokenIds).thenApply(attempt -> {
+            if (isRejected(attempt.response())) {
+                logger.warn("Replacement {} for tokenIds {} rejected: {}", attempt.txHash(), tokenIds,
+                        attempt.response().getError().getMessage());
+                return null;
+            }
+            return attempt.txHash();
+        });
+    }
+
+    // Fehler beim Signieren oder im Journal kommen ebenfalls über das Future, damit send() die Nonce zurückgibt
+    private CompletableFuture<Attempt> broadcast(Credentials credentials, RawTransaction transaction, List<String> tokenIds) {
+        try {
+            String signedTransaction = sign(transaction, credentials);
+            String txHash = Hash.sha3(signedTransaction);
+            return recordSigned(tokenIds, txHash, signedTransaction)
+                    .thenCompose(durable -> web3j.ethSendRawTransaction(signedTransaction).sendAsync())
+                    .thenApply(response -> new Attempt(txHash, response));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private String sign(RawTransaction transaction, Credentials credentials) {
+        return Numeric.toHexString(TransactionEncoder.signMessage(transaction, chainId, credentials));
+    }
+
+    // Alle Einträge mit einem gemeinsamen Flush dauerhaft machen
+    private CompletableFuture<Void> recordSigned(List<String> tokenIds, String txHash, String signedTransaction) {
+        return CompletableFuture.allOf(tokenIds.stream()
+                .map(tokenId -> journal.recordSignedAsync(tokenId, txHash, signedTransaction))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private void recordFailed(List<String> tokenIds, String reason) {
+        for (String tokenId : tokenIds) {
+            try {
+                journal.recordFailed(tokenId, reason);
+            } catch (IOException e) {
+                logger.error("Could not record failed mint for tokenId {} in the journal", tokenId, e);
+            }
+        }
+    }
+
+    private static boolean isRejected(EthSendTransaction response) {
+        return response.hasError() && !isAlreadyKnown(response.getError().getMessage());
+    }
+
+    // Auch ein zu billiger Ersatz zeigt, dass bereits eine Transaktion mit dieser Nonce im Pool liegt
+    public static boolean isNonceConsumed(String message) {
+        if (message == null) {
+            return false;
+        }
+        String normalized = message.toLowerCase();
+        return normalized.contains("nonce too low") || normalized.contains("replacement transaction underpriced");
+    }
+
+    public static boolean isAlreadyKnown(String message) {
+        if (message == null) {
+            return false;
+        }
+        String normalized = message.toLowerCase();
+        return normalized.contains("already known") || normalized.contains("known transaction");
+    }
+}
@@ -0,0 +1,31 @@
+package de.hsbi.binex.binex_backend.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Ein Mint, der angenommen wurde, dessen Ergebnis aber noch nicht im Journal steht
+public record PendingMint(String tokenId,
+                          String receiver,
+                          String surveyId,
+                          String tokenURI,
+                          long createdAt,
+                          List<SignedTransaction> transactions) {
+
+    public PendingMint {
+        transactions = List.copyOf(transactions);
+    }
+
+    PendingMint withTransaction(SignedTransaction transaction) {
+        // Beim Übernehmen eines Journals können Einträge doppelt vorkommen
+        if (transactions.contains(transaction)) {
+            return this;
+        }
+        List<SignedTransaction> updated = new ArrayList<>(transactions);
+        updated.add(transaction);
+        return new PendingMint(tokenId, receiver, surveyId, tokenURI, createdAt, updated);
+    }
+
+    public SignedTransaction latestTransaction() {
+        return transactions.isEmpty() ? null : transactions.get(transactions.size() - 1);
+    }
+}
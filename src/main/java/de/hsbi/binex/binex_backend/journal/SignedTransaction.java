@@ -0,0 +1,4 @@
+package de.hsbi.binex.binex_backend.journal;
+
+public record SignedTransaction(String txHash, String signedTransaction) {
+}
@@ -0,0 +1,23 @@
+package de.hsbi.binex.binex_backend.monitoring;
+
+public enum MintStage {
+    VALIDATION("validation"),
+    HASHING("hash"),
+    DUPLICATE_CHECK("duplicate_check"),
+    QUEUE_WAIT("queue_wait"),
+    BATCH_WAIT("batch_wait"),
+    GAS_PRICE("gas_price"),
+    PREFLIGHT("preflight"),
+    SEND("send"),
+    CONFIRMATION("confirmation");
+
+    private final String metricName;
+
+    MintStage(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String metricName() {
+        return metricName;
+    }
+}
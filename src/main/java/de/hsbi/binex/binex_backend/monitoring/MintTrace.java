@@ -0,0 +1,112 @@
+package de.hsbi.binex.binex_backend.monitoring;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Zeitmessung der einzelnen Stufen und RPC-Aufrufe eines Mint-Requests
+public class MintTrace {
+
+    public record StageTiming(MintStage stage, long startNanos, long endNanos) {
+    }
+
+    public record RpcCall(String method, long startNanos, long endNanos, boolean success) {
+    }
+
+    // Bindet den Trace an den Request-Thread, damit RPC-Aufrufe ihm zugeordnet werden können
+    private static final ThreadLocal<MintTrace> CURRENT = new ThreadLocal<>();
+
+    private final String requestId;
+    private final long startNanos = System.nanoTime();
+    private final List<StageTiming> stages = new ArrayList<>();
+    private final List<RpcCall> rpcCalls = new ArrayList<>();
+    private String surveyId;
+
+    public MintTrace(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public static MintTrace current() {
+        return CURRENT.get();
+    }
+
+    public void attach() {
+        CURRENT.set(this);
+    }
+
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    // Rückgabewert als Startzeit für record() verwenden
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public synchronized void record(MintStage stage, long stageStartNanos) {
+        stages.add(new StageTiming(stage, stageStartNanos, System.nanoTime()));
+    }
+
+    public synchronized void recordRpc(String method, long callStartNanos, boolean success) {
+        rpcCalls.add(new RpcCall(method, callStartNanos, System.nanoTime(), success));
+    }
+
+    public synchronized long endOf(MintStage stage, long fallbackNanos) {
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            if (stages.get(i).stage() == stage) {
+                return stages.get(i).endNanos();
+            }
+        }
+        return fallbackNanos;
+    }
+
+    public synchronized Map<MintStage, Long> getStageNanos() {
+        Map<MintStage, Long> totals = new EnumMap<>(MintStage.class);
+        for (StageTiming timing : stages) {
+            totals.merge(timing.stage(), timing.endNanos() - timing.startNanos(), Long::sum);
+        }
+        return totals;
+    }
+
+    public synchronized List<StageTiming> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    public synchronized List<RpcCall> getRpcCalls() {
+        return new ArrayList<>(rpcCalls);
+    }
+
+    // Wert für den Server-Timing-Header, Dauer in Millisekunden
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(160);
+        getStageNanos().forEach((stage, nanos) ->
+                header.append(stage.metricName()).append(";dur=").append(formatMillis(nanos)).append(", "));
+        return header.append("total;dur=").append(formatMillis(getElapsedNanos())).toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        long tenths = nanos / 100_000;
+        return (tenths / 10) + "." + (tenths % 10);
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public synchronized String getSurveyId() {
+        return surveyId;
+    }
+
+    public synchronized void setSurveyId(String surveyId) {
+        this.surveyId = surveyId;
+    }
+}
@@ -0,0 +1,60 @@
+package de.hsbi.binex.binex_backend.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Schreibt genau ein strukturiertes Ereignis (logfmt) pro Mint-Request
+@Component
+public class RequestEventLogger {
+
+    private static final Logger logger = LoggerFactory.getLogger("de.hsbi.binex.binex_backend.request");
+
+    @Value("${app.logging.success-sample-rate}")
+    private double successSampleRate;
+
+    public static String requestId(String requestIdHeader, String cloudTraceHeader) {
+        if (requestIdHeader != null && requestIdHeader.matches("[A-Za-z0-9._-]{1,64}")) {
+            return requestIdHeader;
+        }
+        // Cloud Run setzt "TRACE_ID/SPAN_ID;o=1"
+        if (cloudTraceHeader != null && !cloudTraceHeader.isBlank()) {
+            int end = cloudTraceHeader.indexOf('/');
+            return end > 0 ? cloudTraceHeader.substring(0, end) : cloudTraceHeader;
+        }
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    public void log(MintTrace trace, int status, String outcome) {
+        // Erfolgreiche Requests nur stichprobenartig, Fehler immer
+        boolean success = status < 400;
+        if (success && successSampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= successSampleRate) {
+            return;
+        }
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+
+        StringBuilder event = new StringBuilder(192)
+                .append("event=mint request_id=").append(trace.getRequestId())
+                .append(" status=").append(status)
+                .append(" outcome=").append(outcome);
+        if (trace.getSurveyId() != null) {
+            event.append(" survey=").append(trace.getSurveyId());
+        }
+        event.append(" total_ms=").append(trace.getElapsedNanos() / 1_000_000);
+        for (Map.Entry<MintStage, Long> stage : trace.getStageNanos().entrySet()) {
+            event.append(' ').append(stage.getKey().metricName()).append("_ms=").append(stage.getValue() / 1_000_000);
+        }
+
+        if (success) {
+            logger.info(event.toString());
+        } else {
+            logger.warn(event.toString());
+        }
+    }
+}
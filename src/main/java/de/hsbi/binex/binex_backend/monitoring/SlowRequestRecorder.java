@@ -0,0 +1,78 @@
+package de.hsbi.binex.binex_backend.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Ringpuffer fester Größe für Mint-Requests oberhalb des Schwellwerts
+@Component
+public class SlowRequestRecorder {
+
+    public record Stage(String stage, double startMs, double durationMs) {
+    }
+
+    public record Rpc(String method, double startMs, double durationMs, boolean success) {
+    }
+
+    public record SlowRequest(String requestId, Instant finishedAt, int status, String outcome, String surveyId,
+                              double totalMs, List<Stage> stages, List<Rpc> rpcCalls) {
+    }
+
+    private final long thresholdNanos;
+    private final AtomicReferenceArray<SlowRequest> buffer;
+    private final AtomicLong written = new AtomicLong();
+
+    public SlowRequestRecorder(@Value("${app.monitoring.slow-request-threshold-ms}") long thresholdMs,
+                               @Value("${app.monitoring.slow-request-capacity}") int capacity) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void record(MintTrace trace, int status, String outcome) {
+        long elapsed = trace.getElapsedNanos();
+        // Im Normalfall nur dieser Vergleich
+        if (elapsed < thresholdNanos) {
+            return;
+        }
+
+        long origin = trace.getStartNanos();
+        List<Stage> stages = new ArrayList<>();
+        for (MintTrace.StageTiming timing : trace.getStages()) {
+            stages.add(new Stage(timing.stage().metricName(),
+                    millis(timing.startNanos() - origin), millis(timing.endNanos() - timing.startNanos())));
+        }
+        List<Rpc> rpcCalls = new ArrayList<>();
+        for (MintTrace.RpcCall call : trace.getRpcCalls()) {
+            rpcCalls.add(new Rpc(call.method(),
+                    millis(call.startNanos() - origin), millis(call.endNanos() - call.startNanos()), call.success()));
+        }
+
+        SlowRequest slowRequest = new SlowRequest(trace.getRequestId(), Instant.now(), status, outcome,
+                trace.getSurveyId(), millis(elapsed), stages, rpcCalls);
+        buffer.set((int) (written.getAndIncrement() % buffer.length()), slowRequest);
+    }
+
+    // Neueste zuerst
+    public List<SlowRequest> getSlowRequests() {
+        long end = written.get();
+        long start = Math.max(0, end - buffer.length());
+        List<SlowRequest> result = new ArrayList<>();
+        for (long i = end - 1; i >= start; i--) {
+            SlowRequest slowRequest = buffer.get((int) (i % buffer.length()));
+            if (slowRequest != null) {
+                result.add(slowRequest);
+            }
+        }
+        return result;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
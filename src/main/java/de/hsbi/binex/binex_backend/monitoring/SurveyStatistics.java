@@ -0,0 +1,135 @@
+package de.hsbi.binex.binex_backend.monitoring;
+
+import de.hsbi.binex.binex_backend.service.SurveyCatalog;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Laufende Zähler je Umfrage, werden beim Abschluss jedes Mint-Requests fortgeschrieben statt neu berechnet.
+// LongAdder verteilt gleichzeitige Inkremente auf mehrere Zellen, die Summe wird erst beim Abruf gebildet.
+@Component
+public class SurveyStatistics {
+
+    // Obergrenzen der Latenz-Buckets in Millisekunden, jeweils 20 % größer als die vorige (bis ca. 30 min)
+    private static final long[] BUCKET_BOUNDS_MS = bucketBounds(1.2, TimeUnit.MINUTES.toMillis(30));
+
+    public record Latency(long p50, long p90, long p99, long max) {
+    }
+
+    public record Stats(String surveyId, Instant since, long accepted, long minted, long duplicates, long failures,
+                        Latency mintLatencyMs) {
+    }
+
+    private static final class Counters {
+
+        private final LongAdder accepted = new LongAdder();
+        private final LongAdder minted = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder[] latencyBuckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+
+        private Counters() {
+            for (int i = 0; i < latencyBuckets.length; i++) {
+                latencyBuckets[i] = new LongAdder();
+            }
+        }
+    }
+
+    private final Instant since = Instant.now();
+    // Nur Umfragen aus dem Katalog, damit beliebige IDs die Map nicht wachsen lassen
+    private final Map<String, Counters> counters;
+
+    public SurveyStatistics(SurveyCatalog surveyCatalog) {
+        Map<String, Counters> bySurvey = new HashMap<>();
+        surveyCatalog.all().forEach(survey -> bySurvey.put(survey.id(), new Counters()));
+        this.counters = Map.copyOf(bySurvey);
+    }
+
+    // surveyId ist erst nach erfolgreicher Validierung gesetzt, abgewiesene Requests zählen nicht als angenommen
+    public void record(MintTrace trace, String outcome) {
+        String surveyId = trace.getSurveyId();
+        Counters survey = surveyId == null ? null : counters.get(surveyId);
+        if (survey == null) {
+            return;
+        }
+        survey.accepted.increment();
+        switch (outcome) {
+            case "minted" -> {
+                survey.minted.increment();
+                survey.latencyBuckets[bucketOf(TimeUnit.NANOSECONDS.toMillis(trace.getElapsedNanos()))].increment();
+            }
+            case "duplicate" -> survey.duplicates.increment();
+            case "invalid" -> {
+            }
+            default -> survey.failures.increment();
+        }
+    }
+
+    public Optional<Stats> getStats(String surveyId) {
+        Counters survey = counters.get(surveyId);
+        if (survey == null) {
+            return Optional.empty();
+        }
+        long[] histogram = new long[survey.latencyBuckets.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = survey.latencyBuckets[i].sum();
+        }
+        Latency latency = new Latency(percentile(histogram, 0.50), percentile(histogram, 0.90),
+                percentile(histogram, 0.99), percentile(histogram, 1.0));
+        return Optional.of(new Stats(surveyId, since, survey.accepted.sum(), survey.minted.sum(),
+                survey.duplicates.sum(), survey.failures.sum(), latency));
+    }
+
+    static int bucketOf(long millis) {
+        int low = 0;
+        int high = BUCKET_BOUNDS_MS.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (BUCKET_BOUNDS_MS[middle] < millis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Liefert die Obergrenze des Buckets, in dem das Quantil liegt (höchstens 20 % über dem wahren Wert)
+    static long percentile(long[] histogram, double quantile) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                // Der letzte Bucket ist nach oben offen, Requests laufen aber vorher in den Timeout
+                return BUCKET_BOUNDS_MS[Math.min(i, BUCKET_BOUNDS_MS.length - 1)];
+            }
+        }
+        return BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1];
+    }
+
+    private static long[] bucketBounds(double growth, long limit) {
+        long[] bounds = new long[128];
+        int count = 0;
+        long bound = 1;
+        while (bound < limit && count < bounds.length) {
+            bounds[count++] = bound;
+            bound = Math.max(bound + 1, (long) Math.ceil(bound * growth));
+        }
+        long[] result = new long[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+}
@@ -0,0 +1,56 @@
+package de.hsbi.binex.binex_backend.monitoring;
+
+import de.hsbi.binex.binex_backend.rpc.AdaptiveConcurrencyLimiter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.utils.Async;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+// Ordnet jeden JSON-RPC-Aufruf dem Mint-Request des aufrufenden Threads zu
+// und hält die Zahl gleichzeitiger Aufrufe im Limit des AdaptiveConcurrencyLimiter
+public class TracingHttpService extends HttpService {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public TracingHttpService(String url, AdaptiveConcurrencyLimiter limiter) {
+        super(url);
+        this.limiter = limiter;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        MintTrace trace = MintTrace.current();
+        // Die Wartezeit auf einen freien Platz zählt zum RPC-Aufruf
+        long callStart = System.nanoTime();
+        long slotStart = limiter.acquire(request.getMethod());
+        return sendInSlot(request, responseType, trace, callStart, slotStart);
+    }
+
+    // Wartet ohne Thread auf einen Platz, erst dann belegt der Aufruf einen Thread des web3j-Pools
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        MintTrace trace = MintTrace.current();
+        long callStart = System.nanoTime();
+        return limiter.acquireAsync(request.getMethod()).thenCompose(slotStart ->
+                Async.run(() -> sendInSlot(request, responseType, trace, callStart, slotStart)));
+    }
+
+    private <T extends Response> T sendInSlot(Request request, Class<T> responseType, MintTrace trace,
+                                              long callStart, long slotStart) throws IOException {
+        String method = request.getMethod();
+        boolean success = false;
+        try {
+            T response = super.send(request, responseType);
+            success = true;
+            return response;
+        } finally {
+            limiter.release(method, slotStart, success);
+            if (trace != null) {
+                trace.recordRpc(method, callStart, success);
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package de.hsbi.binex.binex_backend.rpc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Begrenzt die gleichzeitigen JSON-RPC-Aufrufe und passt das Limit nach AIMD an:
+// Solange die Latenz nahe der kleinsten gemessenen derselben Methode bleibt, wächst es um etwa eins pro Limit-Aufrufe,
+// steigt sie über das Toleranzfenster oder schlägt ein Aufruf fehl, wird es multiplikativ verkleinert.
+// Wartende stehen als Futures in einer Schlange, ein freiwerdender Platz geht direkt an den ältesten.
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    // Nach so vielen Messungen wird die Basislatenz neu bestimmt, falls sich der Knoten verändert hat
+    private static final int MIN_LATENCY_WINDOW = 500;
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double ERROR_BACKOFF = 0.7;
+    // Abgebrochen hinterließen diese Aufrufe gesendete Mints ohne Bestätigung, sie warten daher ohne Timeout,
+    // solange die Warteschlange nicht voll ist
+    private static final Set<String> NEVER_REJECTED = Set.of("eth_sendRawTransaction", "eth_getTransactionReceipt");
+    // Die Dauer hängt von der Zahl der Treffer je Seite ab, nicht von der Last des Knotens
+    private static final Set<String> NO_LATENCY_SIGNAL = Set.of("eth_getLogs");
+
+    public record Statistics(int limit, int inFlight, Map<String, Double> minLatencyMs, long calls, long errors,
+                             long rejected) {
+    }
+
+    // Eigene Basislatenz je Methode, ein langsamer eth_call soll das Limit nicht über schnelle Abfragen drücken
+    private static final class Baseline {
+
+        private long minLatencyNanos = Long.MAX_VALUE;
+        private long windowMinLatencyNanos = Long.MAX_VALUE;
+        private int windowSamples;
+
+        private void update(long latency) {
+            minLatencyNanos = Math.min(minLatencyNanos, latency);
+            windowMinLatencyNanos = Math.min(windowMinLatencyNanos, latency);
+            if (++windowSamples >= MIN_LATENCY_WINDOW) {
+                minLatencyNanos = windowMinLatencyNanos;
+                windowMinLatencyNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+        }
+    }
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final long acquireTimeoutNanos;
+    private final int maxWaiters;
+
+    // Alle folgenden Felder sind durch den Monitor dieser Instanz geschützt
+    private double limit;
+    private int inFlight;
+    private final Map<String, Baseline> baselines = new HashMap<>();
+    private final Queue<CompletableFuture<Long>> waiters = new ArrayDeque<>();
+    private long calls;
+    private long errors;
+    private long rejected;
+
+    public AdaptiveConcurrencyLimiter(@Value("${app.rpc.limiter.enabled}") boolean enabled,
+                                      @Value("${app.rpc.limiter.initial-limit}") int initialLimit,
+                                      @Value("${app.rpc.limiter.min-limit}") int minLimit,
+                                      @Value("${app.rpc.limiter.max-limit}") int maxLimit,
+                                      @Value("${app.rpc.limiter.latency-tolerance}") double latencyTolerance,
+                                      @Value("${app.rpc.limiter.acquire-timeout-ms}") long acquireTimeoutMs,
+                                      @Value("${app.rpc.limiter.max-waiters}") int maxWaiters) {
+        this.enabled = enabled;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyTolerance = Math.max(1.0, latencyTolerance);
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+        this.maxWaiters = Math.max(0, maxWaiters);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    // Liefert die Startzeit für release(), blockiert den aufrufenden Thread bis ein Platz frei ist
+    public long acquire(String method) throws IOException {
+        CompletableFuture<Long> slot = acquireAsync(method);
+        try {
+            return slot.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!slot.cancel(false)) {
+                // Der Platz wurde gerade zugeteilt und wird nicht mehr gebraucht
+                synchronized (this) {
+                    inFlight--;
+                }
+                handOff();
+            }
+            throw new IOException("Interrupted while waiting for an RPC slot.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException cause ? cause : new IOException(e.getCause());
+        }
+    }
+
+    // Wie acquire(), das Future wird mit der Startzeit abgeschlossen, sobald ein Platz frei ist
+    public CompletableFuture<Long> acquireAsync(String method) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(System.nanoTime());
+        }
+        CompletableFuture<Long> slot = new CompletableFuture<>();
+        synchronized (this) {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(System.nanoTime());
+            }
+            if (waiters.size() >= maxWaiters) {
+                rejected++;
+                return CompletableFuture.failedFuture(new IOException(
+                        "RPC concurrency limit of " + (int) limit + " reached with " + waiters.size()
+                                + " waiting calls, node is overloaded."));
+            }
+            waiters.add(slot);
+        }
+        if (!NEVER_REJECTED.contains(method)) {
+            CompletableFuture.delayedExecutor(acquireTimeoutNanos, TimeUnit.NANOSECONDS).execute(() -> {
+                if (removeWaiter(slot)) {
+                    slot.completeExceptionally(new IOException(
+                            "No RPC slot became free within the acquire timeout, node is overloaded."));
+                }
+            });
+        }
+        // Ein abgebrochener Aufruf gibt seinen Platz in der Schlange frei
+        slot.whenComplete((start, error) -> {
+            if (slot.isCancelled()) {
+                removeWaiter(slot);
+            }
+        });
+        return slot;
+    }
+
+    private synchronized boolean removeWaiter(CompletableFuture<Long> slot) {
+        if (!waiters.remove(slot)) {
+            return false;
+        }
+        if (!slot.isCancelled()) {
+            rejected++;
+        }
+        return true;
+    }
+
+    // Teilt freie Plätze den ältesten Wartenden zu, abgeschlossen wird außerhalb des Monitors
+    private void handOff() {
+        while (true) {
+            CompletableFuture<Long> next;
+            synchronized (this) {
+                if (waiters.isEmpty() || inFlight >= (int) limit) {
+                    return;
+                }
+                next = waiters.poll();
+                inFlight++;
+            }
+            if (!next.complete(System.nanoTime())) {
+                synchronized (this) {
+                    inFlight--;
+                }
+            }
+        }
+    }
+
+    public void release(String method, long startNanos, boolean success) {
+        if (!enabled) {
+            return;
+        }
+        long latency = System.nanoTime() - startNanos;
+        synchronized (this) {
+            inFlight--;
+            calls++;
+            double previous = limit;
+            if (!success) {
+                errors++;
+                limit = Math.max(minLimit, limit * ERROR_BACKOFF);
+            } else if (!NO_LATENCY_SIGNAL.contains(method)) {
+                Baseline baseline = baselines.computeIfAbsent(method, ignored -> new Baseline());
+                baseline.update(latency);
+                if (latency > baseline.minLatencyNanos * latencyTolerance) {
+                    limit = Math.max(minLimit, limit * LATENCY_BACKOFF);
+                } else if (inFlight + 1 >= limit / 2) {
+                    // Nur wachsen, wenn das Limit tatsächlich ausgeschöpft wird
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            if ((int) limit != (int) previous) {
+                logger.debug("RPC concurrency limit changed from {} to {}", (int) previous, (int) limit);
+            }
+        }
+        handOff();
+    }
+
+    public synchronized Statistics getStatistics() {
+        Map<String, Double> minLatencyMs = new TreeMap<>();
+        baselines.forEach((method, baseline) -> minLatencyMs.put(method, baseline.minLatencyNanos / 1_000_000.0));
+        return new Statistics((int) limit, inFlight, minLatencyMs, calls, errors, rejected);
+    }
+}
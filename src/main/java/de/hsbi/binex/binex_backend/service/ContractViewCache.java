@@ -0,0 +1,231 @@
+package de.hsbi.binex.binex_backend.service;
+
+import de.hsbi.binex.binex_backend.contracts.BinexNFT;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.gas.StaticGasProvider;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Read-Through-Cache für die View-Funktionen des BinexNFT-Contracts.
+// Der Zustand ändert sich nur durch Mints und Transfers, daher werden Einträge genau dann verworfen.
+@Service
+public class ContractViewCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContractViewCache.class);
+
+    private record Key(String function, Object argument) {
+    }
+
+    private record Entry(Object value, long expiresAt) {
+    }
+
+    public record Statistics(long hits, long misses, long evictions, long expirations, long invalidations, int size) {
+    }
+
+    private final BinexNFT contract;
+    private final long ttlNanos;
+    private final boolean watchTransfers;
+
+    // Geschützt durch den Monitor von entries
+    private final Map<Key, Entry> entries;
+    private long invalidationEpoch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private volatile Disposable transferSubscription;
+
+    public ContractViewCache(Web3j web3j,
+                             @Value("${app.contract.address}") String contractAddress,
+                             @Value("${app.cache.max-entries}") int maxEntries,
+                             @Value("${app.cache.ttl-seconds}") long ttlSeconds,
+                             @Value("${app.cache.transfer-watch.enabled}") boolean watchTransfers) {
+        this.contract = BinexNFT.load(
+                contractAddress,
+                web3j,
+                Credentials.create("0x0"),
+                new StaticGasProvider(BigInteger.ZERO, BigInteger.ZERO)
+        );
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.watchTransfers = watchTransfers;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean exists(BigInteger tokenId) throws Exception {
+        return get(new Key(BinexNFT.FUNC_EXISTS, tokenId), () -> contract.exists(tokenId).send());
+    }
+
+    public String ownerOf(BigInteger tokenId) throws Exception {
+        return get(new Key(BinexNFT.FUNC_OWNEROF, tokenId), () -> contract.ownerOf(tokenId).send());
+    }
+
+    public String tokenURI(BigInteger tokenId) throws Exception {
+        return get(new Key(BinexNFT.FUNC_TOKENURI, tokenId), () -> contract.tokenURI(tokenId).send());
+    }
+
+    public BigInteger balanceOf(String owner) throws Exception {
+        return get(new Key(BinexNFT.FUNC_BALANCEOF, owner.toLowerCase()), () -> contract.balanceOf(owner).send());
+    }
+
+    public BigInteger totalSupply() throws Exception {
+        return get(new Key(BinexNFT.FUNC_TOTALSUPPLY, ""), () -> contract.totalSupply().send());
+    }
+
+    public CompletableFuture<Boolean> existsAsync(BigInteger tokenId) {
+        return getAsync(new Key(BinexNFT.FUNC_EXISTS, tokenId), () -> contract.exists(tokenId).sendAsync());
+    }
+
+    public CompletableFuture<String> ownerOfAsync(BigInteger tokenId) {
+        return getAsync(new Key(BinexNFT.FUNC_OWNEROF, tokenId), () -> contract.ownerOf(tokenId).sendAsync());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Callable<T> loader) throws Exception {
+        long epoch;
+        synchronized (entries) {
+            Entry entry = lookup(key);
+            if (entry != null) {
+                return (T) entry.value();
+            }
+            epoch = invalidationEpoch;
+        }
+
+        T value = loader.call();
+        store(key, value, epoch);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> getAsync(Key key, Supplier<CompletableFuture<T>> loader) {
+        long epoch;
+        synchronized (entries) {
+            Entry entry = lookup(key);
+            if (entry != null) {
+                return CompletableFuture.completedFuture((T) entry.value());
+            }
+            epoch = invalidationEpoch;
+        }
+
+        return loader.get().thenApply(value -> {
+            store(key, value, epoch);
+            return value;
+        });
+    }
+
+    // Muss unter dem Monitor von entries aufgerufen werden
+    private Entry lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt() - System.nanoTime() > 0) {
+                hits.increment();
+                return entry;
+            }
+            entries.remove(key);
+            expirations.increment();
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void store(Key key, Object value, long epoch) {
+        synchronized (entries) {
+            // Wurde während des Ladens invalidiert, könnte der Wert schon veraltet sein
+            if (epoch == invalidationEpoch) {
+                entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+            }
+        }
+    }
+
+    public void invalidateFromReceipt(TransactionReceipt receipt) {
+        for (BinexNFT.TransferEventResponse transfer : BinexNFT.getTransferEvents(receipt)) {
+            invalidateTransfer(transfer.from, transfer.to, transfer.tokenId);
+        }
+    }
+
+    public void invalidateTransfer(String from, String to, BigInteger tokenId) {
+        synchronized (entries) {
+            invalidationEpoch++;
+            entries.remove(new Key(BinexNFT.FUNC_EXISTS, tokenId));
+            entries.remove(new Key(BinexNFT.FUNC_OWNEROF, tokenId));
+            entries.remove(new Key(BinexNFT.FUNC_TOKENURI, tokenId));
+            entries.remove(new Key(BinexNFT.FUNC_BALANCEOF, from.toLowerCase()));
+            entries.remove(new Key(BinexNFT.FUNC_BALANCEOF, to.toLowerCase()));
+            entries.remove(new Key(BinexNFT.FUNC_TOTALSUPPLY, ""));
+        }
+        invalidations.increment();
+        logger.debug("Invalidated cached views for tokenId {}", tokenId);
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidationEpoch++;
+            entries.clear();
+        }
+        invalidations.increment();
+    }
+
+    public Statistics getStatistics() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Statistics(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), invalidations.sum(), size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startTransferWatch() {
+        if (!watchTransfers) {
+            return;
+        }
+        // Transfers anderer Maintainer oder Burns ebenfalls berücksichtigen
+        transferSubscription = contract
+                .transferEventFlowable(DefaultBlockParameterName.LATEST, DefaultBlockParameterName.LATEST)
+                .subscribeOn(Schedulers.io())
+                .doOnError(e -> {
+                    // Während der Unterbrechung könnten Transfers verpasst worden sein
+                    logger.warn("Transfer log watch failed, clearing contract view cache: {}", e.getMessage());
+                    invalidateAll();
+                })
+                .retryWhen(errors -> errors.delay(30, TimeUnit.SECONDS))
+                .subscribe(transfer -> invalidateTransfer(transfer.from, transfer.to, transfer.tokenId));
+        logger.info("Watching Transfer logs of the contract for cache invalidation");
+    }
+
+    @PreDestroy
+    public void stopTransferWatch() {
+        if (transferSubscription != null) {
+            transferSubscription.dispose();
+        }
+    }
+}
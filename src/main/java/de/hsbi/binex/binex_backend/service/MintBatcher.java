@@ -0,0 +1,282 @@
+package de.hsbi.binex.binex_backend.service;
+
+import de.hsbi.binex.binex_backend.contracts.BinexNFT;
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.fees.FeeQuote;
+import de.hsbi.binex.binex_backend.journal.MintJournal;
+import de.hsbi.binex.binex_backend.journal.MintTransactionSender;
+import de.hsbi.binex.binex_backend.monitoring.MintStage;
+import de.hsbi.binex.binex_backend.monitoring.MintTrace;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.tx.gas.StaticGasProvider;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Sammelt Mints nach Anzahl oder Zeitfenster und sendet sie als eine batchMintTo-Transaktion.
+// Der Contract überspringt bereits existierende Token, welche Einträge gemintet wurden,
+// ergibt sich aus den Transfer-Events im Receipt.
+@Component
+public class MintBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MintBatcher.class);
+
+    private static final String ZERO_ADDRESS = "0x0000000000000000000000000000000000000000";
+
+    record BatchItem(Credentials credentials, String receiver, String tokenId, String surveyId, String tokenURI,
+                     MintTrace trace, long enqueuedAt, Runnable onSent, CompletableFuture<Boolean> result) {
+    }
+
+    private final MintJournal mintJournal;
+    private final FeeBumpEngine feeBumpEngine;
+    private final ContractViewCache contractViewCache;
+    private final NonceCoordinator nonceCoordinator;
+    private final MintTransactionSender transactionSender;
+    private final MintPreflight mintPreflight;
+    private final BinexNFT encoder;
+    private final String contractAddress;
+    private final long chainId;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long windowNanos;
+    private final int laneConcurrency;
+
+    private final BlockingQueue<BatchItem> queue = new LinkedBlockingQueue<>();
+    private Thread worker;
+
+    public MintBatcher(Web3j web3j, MintJournal mintJournal, FeeBumpEngine feeBumpEngine,
+                       ContractViewCache contractViewCache, NonceCoordinator nonceCoordinator,
+                       MintTransactionSender transactionSender, MintPreflight mintPreflight,
+                       @Value("${app.contract.address}") String contractAddress,
+                       @Value("${app.qblockchain.chainId}") long chainId,
+                       @Value("${app.batch.enabled}") boolean enabled,
+                       @Value("${app.batch.max-size}") int maxSize,
+                       @Value("${app.batch.window-ms}") long windowMs,
+                       @Value("${app.scheduler.lane-concurrency}") int laneConcurrency) {
+        this.mintJournal = mintJournal;
+        this.feeBumpEngine = feeBumpEngine;
+        this.contractViewCache = contractViewCache;
+        this.nonceCoordinator = nonceCoordinator;
+        this.transactionSender = transactionSender;
+        this.mintPreflight = mintPreflight;
+        this.contractAddress = contractAddress;
+        this.chainId = chainId;
+        this.enabled = enabled;
+        this.maxSize = Math.max(1, maxSize);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.laneConcurrency = laneConcurrency;
+        this.encoder = BinexNFT.load(
+                contractAddress,
+                web3j,
+                Credentials.create("0x0"),
+                new StaticGasProvider(BigInteger.ZERO, BigInteger.ZERO)
+        );
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        worker = new Thread(this::collectBatches, "mint-batcher");
+        worker.setDaemon(true);
+        worker.start();
+        logger.info("Batch minting enabled with up to {} tokens per transaction", maxSize);
+        // Jeder Eintrag hält bis zum Senden einen Platz seiner Lane, mehr Mints einer Umfrage passen nicht in einen Batch
+        if (laneConcurrency < maxSize) {
+            logger.warn("app.scheduler.lane-concurrency ({}) is below app.batch.max-size ({}), "
+                    + "a batch holds at most {} mints of the same survey", laneConcurrency, maxSize, laneConcurrency);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        List<BatchItem> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(item -> item.result().completeExceptionally(
+                new MintingUnavailableException("Server is shutting down, please retry shortly.")));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Liefert true, wenn der Token in einem Batch gemintet wurde, false wenn er bereits existierte.
+    // onSent läuft, sobald der Batch gesendet oder gescheitert ist, noch vor dem Receipt.
+    public CompletableFuture<Boolean> submit(Credentials credentials, String receiver, String tokenId, String surveyId,
+                                             String tokenURI, MintTrace trace, Runnable onSent) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        queue.add(new BatchItem(credentials, receiver, tokenId, surveyId, tokenURI, trace, System.nanoTime(), onSent,
+                result));
+        return result;
+    }
+
+    private void collectBatches() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                BatchItem first = queue.take();
+                List<BatchItem> batch = new ArrayList<>();
+                batch.add(first);
+                // Das Zeitfenster beginnt mit dem ältesten Eintrag, damit kein Mint länger als window-ms wartet
+                long deadline = first.enqueuedAt() + windowNanos;
+                while (batch.size() < maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    BatchItem next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                mintBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Sendet den Batch und kehrt zurück, ohne auf das Receipt zu warten, damit der nächste Batch
+    // mit der folgenden Nonce sofort gesendet werden kann. Jedes Receipt wird getrennt abgefragt.
+    void mintBatch(List<BatchItem> batch) {
+        long flushStart = System.nanoTime();
+        batch.forEach(item -> item.trace().record(MintStage.BATCH_WAIT, item.enqueuedAt()));
+
+        // Gleiche Token im selben Batch werden nur einmal gemintet, spätere gelten als Duplikat
+        Map<String, BatchItem> unique = new LinkedHashMap<>();
+        List<BatchItem> duplicates = new ArrayList<>();
+        for (BatchItem item : batch) {
+            if (unique.putIfAbsent(item.tokenId(), item) != null) {
+                duplicates.add(item);
+            }
+        }
+        List<BatchItem> items = new ArrayList<>(unique.values());
+        List<String> tokenIds = new ArrayList<>(unique.keySet());
+        Credentials credentials = items.get(0).credentials();
+
+        MintTransactionSender.Sent sent;
+        try {
+            FeeQuote fees = feeBumpEngine.currentFees();
+            String data = encoder.batchMintTo(
+                    items.stream().map(BatchItem::receiver).toList(),
+                    items.stream().map(item -> new BigInteger(item.tokenId(), 16)).toList(),
+                    items.stream().map(BatchItem::tokenURI).toList()
+            ).encodeFunctionCall();
+
+            // Ein Revert des ganzen Batches wird vor dem Journal und dem Senden erkannt
+            long preflightStart = System.nanoTime();
+            mintPreflight.simulate(credentials.getAddress(), data);
+            items.forEach(item -> item.trace().record(MintStage.PREFLIGHT, preflightStart));
+
+            // Absichten aller Einträge mit einem gemeinsamen Flush festhalten
+            CompletableFuture.allOf(items.stream()
+                    .map(item -> mintJournal.recordIntentAsync(item.tokenId(), item.receiver(), item.surveyId(), item.tokenURI()))
+                    .toArray(CompletableFuture[]::new)).get();
+
+            long sendStart = System.nanoTime();
+            RawTransaction transaction = fees.transaction(chainId, nonceCoordinator.nextNonce(credentials),
+                    ParticipationService.GAS_LIMIT.multiply(BigInteger.valueOf(items.size())), contractAddress, data);
+            sent = transactionSender.send(credentials, transaction, tokenIds).get();
+            items.forEach(item -> item.trace().record(MintStage.SEND, sendStart));
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            fail(batch, e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e, flushStart);
+            return;
+        } finally {
+            // Gesendet oder gescheitert, der Platz im MintScheduler wird für den nächsten Batch frei
+            batch.forEach(item -> item.onSent().run());
+        }
+
+        feeBumpEngine.awaitReceiptAsync(sent.transaction(), sent.txHash(),
+                        replacement -> transactionSender.replace(credentials, replacement, tokenIds))
+                .toFuture()
+                .whenComplete((receipt, error) -> {
+                    if (error != null) {
+                        // Ohne Receipt bleiben die Einträge für den Abgleich offen
+                        fail(batch, error, flushStart);
+                    } else if (!receipt.isStatusOK()) {
+                        tokenIds.forEach(tokenId -> recordFailed(tokenId, "Reverted in " + receipt.getTransactionHash()));
+                        fail(batch, new TransactionException("Transaction " + receipt.getTransactionHash()
+                                + " has failed with status: " + receipt.getStatus(), receipt), flushStart);
+                    } else {
+                        complete(items, duplicates, batch.size(), receipt, flushStart);
+                    }
+                });
+    }
+
+    private void complete(List<BatchItem> items, List<BatchItem> duplicates, int batchSize, TransactionReceipt receipt,
+                          long flushStart) {
+        contractViewCache.invalidateFromReceipt(receipt);
+
+        Set<BigInteger> minted = BinexNFT.getTransferEvents(receipt).stream()
+                .filter(transfer -> transfer.from.equalsIgnoreCase(ZERO_ADDRESS))
+                .map(transfer -> transfer.tokenId)
+                .collect(Collectors.toSet());
+        for (BatchItem item : items) {
+            item.trace().record(MintStage.CONFIRMATION, flushStart);
+            if (minted.contains(new BigInteger(item.tokenId(), 16))) {
+                recordConfirmed(item.tokenId(), receipt.getTransactionHash());
+                item.result().complete(true);
+            } else {
+                recordFailed(item.tokenId(), "Skipped in batch " + receipt.getTransactionHash());
+                item.result().complete(false);
+            }
+        }
+        duplicates.forEach(item -> item.result().complete(false));
+        logger.info("Minted {} of {} tokens in batch transaction {}", minted.size(), batchSize,
+                receipt.getTransactionHash());
+    }
+
+    private void fail(List<BatchItem> batch, Throwable cause, long flushStart) {
+        logger.error("Error while minting batch of {} tokens", batch.size(), cause);
+        Exception failure = cause instanceof MintRejectedException rejected
+                ? rejected : new Exception("Error during NFT minting: " + cause.getMessage(), cause);
+        batch.forEach(item -> {
+            item.trace().record(MintStage.CONFIRMATION, flushStart);
+            item.result().completeExceptionally(failure);
+        });
+    }
+
+    private void recordConfirmed(String tokenId, String txHash) {
+        try {
+            mintJournal.recordConfirmed(tokenId, txHash);
+        } catch (IOException e) {
+            logger.error("Could not record confirmed mint for tokenId {} in the journal", tokenId, e);
+        }
+    }
+
+    private void recordFailed(String tokenId, String reason) {
+        try {
+            mintJournal.recordFailed(tokenId, reason);
+        } catch (IOException e) {
+            logger.error("Could not record failed mint in the journal", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package de.hsbi.binex.binex_backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Simuliert einen Mint per eth_call gegen den Pending-Zustand, bevor er journalisiert und gesendet wird.
+// Ein Revert (kein Maintainer mehr, Token existiert bereits) kostet so weder Gas noch eine Blockzeit.
+@Component
+public class MintPreflight {
+
+    private static final Logger logger = LoggerFactory.getLogger(MintPreflight.class);
+
+    // JSON-RPC-Fehlercode für "execution reverted"
+    private static final int REVERT_ERROR_CODE = 3;
+
+    private final Web3j web3j;
+    private final String contractAddress;
+    private final boolean enabled;
+
+    public MintPreflight(Web3j web3j,
+                         @Value("${app.contract.address}") String contractAddress,
+                         @Value("${app.preflight.enabled}") boolean enabled) {
+        this.web3j = web3j;
+        this.contractAddress = contractAddress;
+        this.enabled = enabled;
+    }
+
+    public void simulate(String from, String data) throws IOException {
+        if (enabled) {
+            check(web3j.ethCall(callOf(from, data), DefaultBlockParameterName.PENDING).send());
+        }
+    }
+
+    public CompletableFuture<Void> simulateAsync(String from, String data) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return web3j.ethCall(callOf(from, data), DefaultBlockParameterName.PENDING).sendAsync()
+                .thenAccept(response -> {
+                    try {
+                        check(response);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private Transaction callOf(String from, String data) {
+        return Transaction.createEthCallTransaction(from, contractAddress, data);
+    }
+
+    private static void check(EthCall response) throws IOException {
+        if (response.hasError() && response.getError().getCode() != REVERT_ERROR_CODE
+                && !response.getError().getMessage().contains("revert")) {
+            // Kein Revert, sondern ein Problem des Knotens
+            throw new IOException("Mint simulation failed: " + response.getError().getMessage());
+        }
+        if (response.hasError() || response.isReverted()) {
+            String reason = response.hasError() ? response.getError().getMessage() : response.getRevertReason();
+            logger.warn("Mint simulation reverted: {}", reason);
+            throw new MintRejectedException("Minting would fail: " + reason);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package de.hsbi.binex.binex_backend.service;
+
+// Teilnehmer auf der SoSci-Seite warten auf die Antwort, Sammelvergaben nicht
+public enum MintPriority {
+    INTERACTIVE,
+    BULK;
+
+    // Wert des Headers X-Mint-Priority, ohne Angabe gilt ein Request als interaktiv
+    public static MintPriority fromHeader(String header) {
+        return "bulk".equalsIgnoreCase(header) ? BULK : INTERACTIVE;
+    }
+}
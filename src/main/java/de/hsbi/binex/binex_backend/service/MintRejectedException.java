@@ -0,0 +1,9 @@
+package de.hsbi.binex.binex_backend.service;
+
+// Der Mint würde laut Simulation revertieren und wurde daher nicht gesendet
+public class MintRejectedException extends RuntimeException {
+
+    public MintRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,202 @@
+package de.hsbi.binex.binex_backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Vergibt Plätze für Mints nach Weighted Fair Queueing über Lanes aus Priorität und Umfrage.
+// Jeder Eintrag erhält eine virtuelle Endzeit (Start + 1/Gewicht), vergeben wird immer die kleinste
+// einer Lane unterhalb ihres Limits. So kann eine volle Lane die anderen nicht aushungern.
+@Component
+public class MintScheduler {
+
+    public record LaneStatistics(String priority, String surveyId, int depth, int active, long granted, long rejected,
+                                 double averageWaitMs, double maxWaitMs) {
+    }
+
+    private record Waiter(double finishTag, long enqueuedAt, CompletableFuture<Permit> future) {
+    }
+
+    private record Grant(Waiter waiter, Permit permit) {
+    }
+
+    private record LaneKey(MintPriority priority, String surveyId) {
+    }
+
+    private static final class Lane {
+
+        private final LaneKey key;
+        private final double weight;
+        private final Deque<Waiter> waiters = new ArrayDeque<>();
+        private double lastFinishTag;
+        private int active;
+        private long granted;
+        private long rejected;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        private Lane(LaneKey key, double weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+
+    // Ein vergebener Platz, muss nach dem Mint genau einmal freigegeben werden
+    public final class Permit implements AutoCloseable {
+
+        private final Lane lane;
+        private final long waitNanos;
+        private boolean released;
+
+        private Permit(Lane lane, long waitNanos) {
+            this.lane = lane;
+            this.waitNanos = waitNanos;
+        }
+
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    private final int maxConcurrency;
+    private final int laneConcurrency;
+    private final int maxQueueDepth;
+    private final Map<MintPriority, Double> weights;
+
+    // Alle folgenden Felder sind durch den Monitor dieser Instanz geschützt.
+    // Lanes entstehen nur für Umfragen aus dem Katalog, die Map bleibt daher klein.
+    private final Map<LaneKey, Lane> lanes = new HashMap<>();
+    private double virtualTime;
+    private int active;
+
+    public MintScheduler(@Value("${app.scheduler.max-concurrency}") int maxConcurrency,
+                         @Value("${app.scheduler.lane-concurrency}") int laneConcurrency,
+                         @Value("${app.scheduler.max-queue-depth}") int maxQueueDepth,
+                         @Value("${app.scheduler.interactive-weight}") double interactiveWeight,
+                         @Value("${app.scheduler.bulk-weight}") double bulkWeight) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.laneConcurrency = Math.max(1, laneConcurrency);
+        this.maxQueueDepth = maxQueueDepth;
+        this.weights = Map.of(MintPriority.INTERACTIVE, Math.max(interactiveWeight, 0.01),
+                MintPriority.BULK, Math.max(bulkWeight, 0.01));
+    }
+
+    // Wird das Future abgebrochen, bevor es einen Platz erhält, verfällt der Eintrag
+    public CompletableFuture<Permit> acquire(MintPriority priority, String surveyId) {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        List<Grant> grants;
+        synchronized (this) {
+            LaneKey key = new LaneKey(priority, surveyId);
+            Lane lane = lanes.computeIfAbsent(key, ignored -> new Lane(key, weights.get(priority)));
+            lane.waiters.removeIf(waiter -> waiter.future().isDone());
+            if (lane.waiters.size() >= maxQueueDepth) {
+                lane.rejected++;
+                throw new MintingUnavailableException("Too many pending mints for survey " + surveyId + ", please retry shortly.");
+            }
+            double start = Math.max(virtualTime, lane.lastFinishTag);
+            lane.lastFinishTag = start + 1.0 / lane.weight;
+            lane.waiters.add(new Waiter(lane.lastFinishTag, System.nanoTime(), future));
+            grants = dispatch();
+        }
+        complete(grants);
+        return future;
+    }
+
+    // Blockierende Variante für Request-Threads
+    public Permit acquireBlocking(MintPriority priority, String surveyId) throws InterruptedException {
+        CompletableFuture<Permit> future = acquire(priority, surveyId);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Mint permit could not be granted", e.getCause());
+        }
+    }
+
+    private void release(Permit permit) {
+        List<Grant> grants;
+        synchronized (this) {
+            if (permit.released) {
+                return;
+            }
+            permit.released = true;
+            permit.lane.active--;
+            active--;
+            grants = dispatch();
+        }
+        complete(grants);
+    }
+
+    // Muss unter dem Monitor aufgerufen werden, die Futures werden erst danach abgeschlossen
+    private List<Grant> dispatch() {
+        List<Grant> grants = new ArrayList<>();
+        long now = System.nanoTime();
+        while (active < maxConcurrency) {
+            Lane next = null;
+            for (Lane lane : lanes.values()) {
+                while (!lane.waiters.isEmpty() && lane.waiters.peekFirst().future().isDone()) {
+                    lane.waiters.pollFirst();
+                }
+                if (lane.waiters.isEmpty() || lane.active >= laneConcurrency) {
+                    continue;
+                }
+                if (next == null || lane.waiters.peekFirst().finishTag() < next.waiters.peekFirst().finishTag()) {
+                    next = lane;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            Waiter waiter = next.waiters.pollFirst();
+            // Die virtuelle Zeit folgt dem Start des zuletzt bedienten Eintrags
+            virtualTime = Math.max(virtualTime, waiter.finishTag() - 1.0 / next.weight);
+            long waited = now - waiter.enqueuedAt();
+            next.active++;
+            active++;
+            next.granted++;
+            next.totalWaitNanos += waited;
+            next.maxWaitNanos = Math.max(next.maxWaitNanos, waited);
+            grants.add(new Grant(waiter, new Permit(next, waited)));
+        }
+        return grants;
+    }
+
+    private static void complete(List<Grant> grants) {
+        for (Grant grant : grants) {
+            // Wurde das Future gleichzeitig abgebrochen, den Platz sofort zurückgeben
+            if (!grant.waiter().future().complete(grant.permit())) {
+                grant.permit().close();
+            }
+        }
+    }
+
+    public synchronized List<LaneStatistics> getStatistics() {
+        return lanes.values().stream()
+                .sorted(Comparator.comparing((Lane lane) -> lane.key.priority()).thenComparing(lane -> lane.key.surveyId()))
+                .map(lane -> new LaneStatistics(lane.key.priority().name().toLowerCase(), lane.key.surveyId(),
+                        lane.waiters.size(), lane.active, lane.granted, lane.rejected,
+                        lane.granted == 0 ? 0 : millis(lane.totalWaitNanos / lane.granted), millis(lane.maxWaitNanos)))
+                .toList();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,8 @@
+package de.hsbi.binex.binex_backend.service;
+
+public class MintingUnavailableException extends RuntimeException {
+
+    public MintingUnavailableException(String message) {
+        super(message);
+    }
+}
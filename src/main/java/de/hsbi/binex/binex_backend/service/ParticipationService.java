@@ -1,13 +1,21 @@
 package de.hsbi.binex.binex_backend.service;
 
 import de.hsbi.binex.binex_backend.contracts.BinexNFT;
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.fees.FeeQuote;
+import de.hsbi.binex.binex_backend.journal.JournalingTransactionManager;
+import de.hsbi.binex.binex_backend.journal.MintJournal;
+import de.hsbi.binex.binex_backend.monitoring.MintStage;
+import de.hsbi.binex.binex_backend.monitoring.MintTrace;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.protocol.exceptions.TransactionException;
 import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.gas.StaticGasProvider;
+import org.web3j.tx.gas.ContractGasProvider;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,56 +23,106 @@ import org.slf4j.LoggerFactory;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutionException;
 
 @Service
 public class ParticipationService {
 
     private static final Logger logger = LoggerFactory.getLogger(ParticipationService.class);
 
+    static final BigInteger GAS_LIMIT = BigInteger.valueOf(400_000);
+
     @Value("${app.hash.salt}")
     private String salt;
 
     @Value("${app.contract.address}")
     private String contractAddress;
 
-    @Value("${app.qblockchain.url}")
-    private String blockchainUrl;
-
     @Value("${app.qblockchain.chainId}")
     private int chainId;
 
-    public ParticipationService() {
+    @Value("${app.metadata.base-url}")
+    private String metadataBaseUrl;
+
+    private final Web3j web3j;
+    private final MintJournal mintJournal;
+    private final SurveyCatalog surveyCatalog;
+    private final ContractViewCache contractViewCache;
+    private final FeeBumpEngine feeBumpEngine;
+    private final MintBatcher mintBatcher;
+    private final NonceCoordinator nonceCoordinator;
+    private final MintScheduler mintScheduler;
+    private final MintPreflight mintPreflight;
+
+    public ParticipationService(Web3j web3j, MintJournal mintJournal, SurveyCatalog surveyCatalog,
+                                ContractViewCache contractViewCache, FeeBumpEngine feeBumpEngine,
+                                MintBatcher mintBatcher, NonceCoordinator nonceCoordinator,
+                                MintScheduler mintScheduler, MintPreflight mintPreflight) {
+        this.web3j = web3j;
+        this.mintJournal = mintJournal;
+        this.surveyCatalog = surveyCatalog;
+        this.contractViewCache = contractViewCache;
+        this.feeBumpEngine = feeBumpEngine;
+        this.mintBatcher = mintBatcher;
+        this.nonceCoordinator = nonceCoordinator;
+        this.mintScheduler = mintScheduler;
+        this.mintPreflight = mintPreflight;
     }
 
-    public boolean processParticipation(String publicKey, String surveyId, String participantPoints) throws Exception {
+    public boolean processParticipation(String publicKey, String surveyId, String participantPoints,
+                                        MintPriority priority, MintTrace trace) throws Exception {
         logger.info("Processing participation for publicKey: {}, surveyId: {}, participantPoints: {}",
                 publicKey, surveyId, participantPoints);
 
+        // Nach einem Neustart erst annehmen, wenn offene Mints abgeglichen sind
+        if (!mintJournal.isReady()) {
+            throw new MintingUnavailableException("Pending mints are still being reconciled, please retry shortly.");
+        }
+
         // Eingabevalidierung
+        long stageStart = trace.start();
         validateInputs(publicKey, surveyId, participantPoints);
+        trace.record(MintStage.VALIDATION, stageStart);
+        trace.setSurveyId(surveyId);
 
         // Generiere den Hash-Wert
+        stageStart = trace.start();
         String hashValue = generateHash(publicKey, surveyId);
+        trace.record(MintStage.HASHING, stageStart);
         logger.info("Generated hash value: {}", hashValue);
 
         // Überprüfe, ob der Benutzer bereits teilgenommen hat
+        stageStart = trace.start();
         boolean hasParticipated = checkIfParticipationExistsOnBlockchain(publicKey, hashValue);
+        trace.record(MintStage.DUPLICATE_CHECK, stageStart);
         if (hasParticipated) {
             logger.warn("Participation already registered on blockchain for hash: {}", hashValue);
             return false;
         }
 
         // Bestimme den TokenURI basierend auf surveyId
-        String tokenURI = getTokenURIForSurveyId(surveyId);
+        String tokenURI = getTokenURIForSurveyId(surveyId, hashValue);
         logger.info("TokenURI determined: {}", tokenURI);
 
-        // Mint NFT mit dem Hash-Wert als Token ID
-        mintNFT(publicKey, hashValue, tokenURI);
+        // Auf einen Platz in der Lane dieser Umfrage und Priorität warten
+        stageStart = trace.start();
+        try (MintScheduler.Permit permit = mintScheduler.acquireBlocking(priority, surveyId)) {
+            trace.record(MintStage.QUEUE_WAIT, stageStart);
+
+            // Im Batch-Modus gemeinsam mit anderen Teilnahmen in einer Transaktion minten
+            if (mintBatcher.isEnabled()) {
+                return mintInBatch(publicKey, surveyId, hashValue, tokenURI, trace, permit);
+            }
+
+            // Mint NFT mit dem Hash-Wert als Token ID
+            mintNFT(publicKey, surveyId, hashValue, tokenURI, trace);
+        }
 
         return true;
     }
 
-    private void validateInputs(String publicKey, String surveyId, String participantPoints) {
+    void validateInputs(String publicKey, String surveyId, String participantPoints) {
         if (publicKey == null || publicKey.isEmpty() ||
                 surveyId == null || surveyId.isEmpty() ||
                 participantPoints == null || participantPoints.isEmpty()) {
@@ -73,12 +131,7 @@ public class ParticipationService {
         }
 
         // Überprüfe, ob surveyId gültig ist
-        if (!surveyId.equals("cashlink-nft-event") &&
-                !surveyId.equals("hsbi-logo-nft") &&
-                !surveyId.equals("test-nft-blockchain") &&
-                !surveyId.equals("vpp-nft-1") &&
-                !surveyId.equals("vpp-nft-2") &&
-                !surveyId.equals("vpp-nft-3")) {
+        if (!surveyCatalog.contains(surveyId)) {
             logger.error("Invalid Survey ID: {}", surveyId);
             throw new IllegalArgumentException("Invalid Survey ID.");
         }
@@ -89,20 +142,11 @@ public class ParticipationService {
     private boolean checkIfParticipationExistsOnBlockchain(String publicKey, String hashValue) throws Exception {
         logger.info("Checking if participation exists on blockchain for publicKey: {}", publicKey);
 
-        Web3j web3j = Web3j.build(new HttpService(blockchainUrl));
-
-        BinexNFT contract = BinexNFT.load(
-                contractAddress,
-                web3j,
-                Credentials.create("0x0"),
-                new StaticGasProvider(BigInteger.ZERO, BigInteger.ZERO)
-        );
-
         BigInteger tokenId = new BigInteger(hashValue, 16);
 
-        boolean tokenExists = contract.exists(tokenId).send();
+        boolean tokenExists = contractViewCache.exists(tokenId);
         if (tokenExists) {
-            String ownerAddress = contract.ownerOf(tokenId).send();
+            String ownerAddress = contractViewCache.ownerOf(tokenId);
             if (ownerAddress.equalsIgnoreCase(publicKey)) {
                 logger.info("User already owns the token with tokenId: {}", tokenId);
                 return true;
@@ -111,45 +155,34 @@ public class ParticipationService {
         return false;
     }
 
-    private String generateHash(String publicKey, String surveyId) throws Exception {
+    String generateHash(String publicKey, String surveyId) throws Exception {
+        // Der gesalzene Klartext darf nie geloggt werden
         String combinedString = salt + publicKey + surveyId;
-        logger.debug("Combined string for hashing: {}", combinedString);
 
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] hashBytes = digest.digest(combinedString.getBytes(StandardCharsets.UTF_8));
-
-        StringBuilder sb = new StringBuilder();
-        for (byte b : hashBytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+        return HexFormat.of().formatHex(hashBytes);
     }
 
-    private void mintNFT(String publicKey, String hashValue, String tokenURI) throws Exception {
+    private void mintNFT(String publicKey, String surveyId, String hashValue, String tokenURI,
+                         MintTrace trace) throws Exception {
         logger.info("Starting NFT minting for publicKey: {}", publicKey);
 
-        Web3j web3j = Web3j.build(new HttpService(blockchainUrl));
-        logger.info("Connected to Q-Blockchain at URL: {}", blockchainUrl);
-
-        String privateKey = System.getenv("PRIVATE_KEY");
-        if (privateKey == null || privateKey.isEmpty()) {
-            logger.error("PRIVATE_KEY environment variable is not set.");
-            throw new IllegalStateException("PRIVATE_KEY environment variable is not set.");
-        }
-        Credentials credentials = Credentials.create(privateKey);
+        Credentials credentials = loadCredentials();
         logger.info("Credentials successfully loaded.");
 
-        RawTransactionManager transactionManager = new RawTransactionManager(web3j, credentials, chainId);
+        RawTransactionManager transactionManager =
+                new JournalingTransactionManager(web3j, credentials, chainId, mintJournal, hashValue, trace, feeBumpEngine,
+                        nonceCoordinator);
         logger.info("TransactionManager created with Chain ID {}", chainId);
 
-        BigInteger networkGasPrice = web3j.ethGasPrice().send().getGasPrice();
-        logger.info("Current network gas price: {} Wei", networkGasPrice);
-
-        BigInteger gasPrice = networkGasPrice.multiply(BigInteger.valueOf(105)).divide(BigInteger.valueOf(100));
-        BigInteger gasLimit = BigInteger.valueOf(400_000);
-        logger.info("Gas price set to {} Wei, gas limit set to {}", gasPrice, gasLimit);
+        // EIP-1559-Felder, wenn die Chain sie unterstützt, sonst 105 % des Gaspreises
+        long stageStart = trace.start();
+        FeeQuote fees = feeBumpEngine.currentFees();
+        trace.record(MintStage.GAS_PRICE, stageStart);
+        logger.info("Fees set to {}, gas limit set to {}", fees, GAS_LIMIT);
 
-        StaticGasProvider gasProvider = new StaticGasProvider(gasPrice, gasLimit);
+        ContractGasProvider gasProvider = fees.gasProvider(chainId, GAS_LIMIT);
 
         BinexNFT contract = BinexNFT.load(
                 contractAddress,
@@ -162,30 +195,77 @@ public class ParticipationService {
         BigInteger tokenId = new BigInteger(hashValue, 16);
         logger.info("TokenID generated from hash: {}", tokenId);
 
+        // Ein Revert wird vor dem Journal und dem Senden erkannt
+        RemoteFunctionCall<TransactionReceipt> mintCall = contract.mintTo(publicKey, tokenId, tokenURI);
+        stageStart = trace.start();
+        mintPreflight.simulate(credentials.getAddress(), mintCall.encodeFunctionCall());
+        trace.record(MintStage.PREFLIGHT, stageStart);
+
+        // Absicht vor dem Senden dauerhaft festhalten
+        mintJournal.recordIntent(hashValue, publicKey, surveyId, tokenURI);
+
+        stageStart = trace.start();
         try {
-            TransactionReceipt receipt = contract.mintTo(publicKey, tokenId, tokenURI).send();
+            TransactionReceipt receipt = mintCall.send();
+            recordConfirmation(trace, stageStart);
+            mintJournal.recordConfirmed(hashValue, receipt.getTransactionHash());
+            contractViewCache.invalidateFromReceipt(receipt);
             logger.info("NFT successfully minted with tokenId: {}. Transaction Hash: {}", tokenId, receipt.getTransactionHash());
+        } catch (TransactionException e) {
+            recordConfirmation(trace, stageStart);
+            // Nur ein Receipt ist ein endgültiges Ergebnis, ohne bleibt der Eintrag für den Abgleich offen
+            if (e.getTransactionReceipt().isPresent()) {
+                mintJournal.recordFailed(hashValue, e.getMessage());
+            }
+            logger.error("Error while waiting for transaction", e);
+            throw new Exception("Error during NFT minting: " + e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error while sending transaction", e);
             throw new Exception("Error during NFT minting: " + e.getMessage(), e);
         }
     }
 
-    private String getTokenURIForSurveyId(String surveyId) {
-        String tokenURI = switch (surveyId) {
-            case "cashlink-nft-event" ->
-                    "https://binex.hsbi.de/assets/1-binex-nft-event-blockchain-trifft-finance.ce070184.jpg";
-            case "hsbi-logo-nft" -> "https://www.designtagebuch.de/wp-content/uploads/mediathek/2023/04/hsbi-logo.jpg";
-            case "test-nft-blockchain" ->
-                    "https://www.hsbi.de/multimedia/Hochschulverwaltung/HSK/Bilder+Berichterstattung/Fachbereiche/FB+5/Veranstaltungen/2022_09_20+Kryprow%C3%A4hrung+Blockchain+Peer_to_Peer/Slider/220920_FH_Kryptowaehrung_slider_10-height-635-width-1270-p-163374.jpg";
-            case "vpp-nft-1" -> "https://binex.hsbi.de/assets/VPP%20-%20NFT%201.d6cdab25.jpg";
-            case "vpp-nft-2" -> "https://binex.hsbi.de/assets/VPP%20-%20NFT%202.bee565e9.jpg";
-            case "vpp-nft-3" -> "https://binex.hsbi.de/assets/VPP%20-%20NFT%203.688f1fbb.jpg";
-            default -> {
-                logger.error("Invalid Survey ID: {}", surveyId);
-                throw new IllegalArgumentException("Invalid Survey ID.");
+    // Der Platz im MintScheduler wird schon mit dem Senden des Batches frei, nicht erst mit dem Receipt
+    private boolean mintInBatch(String publicKey, String surveyId, String hashValue, String tokenURI,
+                                MintTrace trace, MintScheduler.Permit permit) throws Exception {
+        try {
+            boolean minted = mintBatcher.submit(loadCredentials(), publicKey, hashValue, surveyId, tokenURI, trace,
+                    permit::close).get();
+            if (!minted) {
+                logger.warn("Participation already registered on blockchain for hash: {}", hashValue);
             }
-        };
+            return minted;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    Credentials loadCredentials() {
+        String privateKey = System.getenv("PRIVATE_KEY");
+        if (privateKey == null || privateKey.isEmpty()) {
+            logger.error("PRIVATE_KEY environment variable is not set.");
+            throw new IllegalStateException("PRIVATE_KEY environment variable is not set.");
+        }
+        return Credentials.create(privateKey);
+    }
+
+    // Die Wartezeit auf das Receipt ist alles nach dem Senden
+    private void recordConfirmation(MintTrace trace, long mintStart) {
+        trace.record(MintStage.CONFIRMATION, trace.endOf(MintStage.SEND, mintStart));
+    }
+
+    String getTokenURIForSurveyId(String surveyId, String hashValue) {
+        SurveyCatalog.Survey survey = surveyCatalog.find(surveyId).orElseThrow(() -> {
+            logger.error("Invalid Survey ID: {}", surveyId);
+            return new IllegalArgumentException("Invalid Survey ID.");
+        });
+
+        // Mit konfigurierter Basis-URL zeigt der TokenURI auf unseren Metadaten-Endpunkt statt auf das Bild
+        String tokenURI = survey.imageUrl();
+        if (metadataBaseUrl != null && !metadataBaseUrl.isBlank()) {
+            tokenURI = metadataBaseUrl.replaceAll("/+$", "") + "/api/metadata/" + new BigInteger(hashValue, 16)
+                    + "?survey=" + survey.id();
+        }
         logger.debug("TokenURI for surveyId {}: {}", surveyId, tokenURI);
         return tokenURI;
     }
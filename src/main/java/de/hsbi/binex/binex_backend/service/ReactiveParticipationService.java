@@ -0,0 +1,224 @@
+package de.hsbi.binex.binex_backend.service;
+
+import de.hsbi.binex.binex_backend.contracts.BinexNFT;
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.fees.FeeQuote;
+import de.hsbi.binex.binex_backend.journal.MintJournal;
+import de.hsbi.binex.binex_backend.journal.MintTransactionSender;
+import de.hsbi.binex.binex_backend.monitoring.MintStage;
+import de.hsbi.binex.binex_backend.monitoring.MintTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.tx.gas.StaticGasProvider;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Nicht-blockierende Variante von ParticipationService auf Basis der sendAsync()-APIs von web3j.
+// Während auf die Bestätigung gewartet wird, hält ein Mint keinen Thread.
+@Service
+public class ReactiveParticipationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveParticipationService.class);
+
+    @Value("${app.qblockchain.chainId}")
+    private long chainId;
+
+    @Value("${app.reactive.request-timeout-seconds}")
+    private long requestTimeoutSeconds;
+
+    @Value("${app.reactive.receipt-poll-interval-ms}")
+    private long receiptPollIntervalMs;
+
+    private final Web3j web3j;
+    private final MintJournal mintJournal;
+    private final ContractViewCache contractViewCache;
+    private final ParticipationService participationService;
+    private final FeeBumpEngine feeBumpEngine;
+    private final MintBatcher mintBatcher;
+    private final NonceCoordinator nonceCoordinator;
+    private final MintTransactionSender transactionSender;
+    private final MintScheduler mintScheduler;
+    private final MintPreflight mintPreflight;
+    private final String contractAddress;
+    private final BinexNFT encoder;
+
+    // Nonce abfragen, signieren und senden laufen nacheinander, damit keine Nonce doppelt vergeben wird
+    private CompletableFuture<?> sendQueue = CompletableFuture.completedFuture(null);
+
+    public ReactiveParticipationService(Web3j web3j, MintJournal mintJournal, ContractViewCache contractViewCache,
+                                        ParticipationService participationService, FeeBumpEngine feeBumpEngine,
+                                        MintBatcher mintBatcher, NonceCoordinator nonceCoordinator,
+                                        MintScheduler mintScheduler, MintPreflight mintPreflight,
+                                        MintTransactionSender transactionSender, @Value("${app.contract.address}") String contractAddress) {
+        this.web3j = web3j;
+        this.mintJournal = mintJournal;
+        this.contractViewCache = contractViewCache;
+        this.participationService = participationService;
+        this.feeBumpEngine = feeBumpEngine;
+        this.mintBatcher = mintBatcher;
+        this.nonceCoordinator = nonceCoordinator;
+        this.transactionSender = transactionSender;
+        this.mintScheduler = mintScheduler;
+        this.mintPreflight = mintPreflight;
+        this.contractAddress = contractAddress;
+        this.encoder = BinexNFT.load(
+                contractAddress,
+                web3j,
+                Credentials.create("0x0"),
+                new StaticGasProvider(BigInteger.ZERO, BigInteger.ZERO)
+        );
+    }
+
+    public Mono<Boolean> processParticipation(String publicKey, String surveyId, String participantPoints,
+                                              MintPriority priority, MintTrace trace) {
+        return Mono.fromCallable(() -> {
+                    // Nach einem Neustart erst annehmen, wenn offene Mints abgeglichen sind
+                    if (!mintJournal.isReady()) {
+                        throw new MintingUnavailableException("Pending mints are still being reconciled, please retry shortly.");
+                    }
+
+                    long stageStart = trace.start();
+                    participationService.validateInputs(publicKey, surveyId, participantPoints);
+                    trace.record(MintStage.VALIDATION, stageStart);
+                    trace.setSurveyId(surveyId);
+
+                    stageStart = trace.start();
+                    String hashValue = participationService.generateHash(publicKey, surveyId);
+                    trace.record(MintStage.HASHING, stageStart);
+                    return hashValue;
+                })
+                .flatMap(hashValue -> checkIfParticipationExists(publicKey, hashValue, trace)
+                        .flatMap(hasParticipated -> {
+                            if (hasParticipated) {
+                                logger.warn("Participation already registered on blockchain for hash: {}", hashValue);
+                                return Mono.just(false);
+                            }
+                            String tokenURI = participationService.getTokenURIForSurveyId(surveyId, hashValue);
+                            // Der Platz wird erst nach dem Mint freigegeben, ein Abbruch beim Warten gibt ihn auf
+                            long queueStart = trace.start();
+                            return Mono.usingWhen(
+                                    Mono.fromFuture(() -> mintScheduler.acquire(priority, surveyId))
+                                            .doOnSuccess(permit -> trace.record(MintStage.QUEUE_WAIT, queueStart)),
+                                    permit -> mint(publicKey, surveyId, hashValue, tokenURI, trace, permit),
+                                    permit -> Mono.fromRunnable(permit::close));
+                        }))
+                .timeout(Duration.ofSeconds(requestTimeoutSeconds))
+                .doOnCancel(() -> logger.warn("Reactive mint {} was cancelled, open journal entries are reconciled on restart",
+                        trace.getRequestId()));
+    }
+
+    private Mono<Boolean> mint(String publicKey, String surveyId, String hashValue, String tokenURI, MintTrace trace,
+                               MintScheduler.Permit permit) {
+        if (mintBatcher.isEnabled()) {
+            // Ein Abbruch nimmt den Eintrag nicht mehr aus einem bereits gesendeten Batch.
+            // Der Platz wird schon mit dem Senden des Batches frei, nicht erst mit dem Receipt.
+            return Mono.fromFuture(() -> mintBatcher.submit(participationService.loadCredentials(),
+                    publicKey, hashValue, surveyId, tokenURI, trace, permit::close), true);
+        }
+        return mintNFT(publicKey, surveyId, hashValue, tokenURI, trace).thenReturn(true);
+    }
+
+    private Mono<Boolean> checkIfParticipationExists(String publicKey, String hashValue, MintTrace trace) {
+        BigInteger tokenId = new BigInteger(hashValue, 16);
+        long stageStart = trace.start();
+        return Mono.fromFuture(() -> contractViewCache.existsAsync(tokenId))
+                .flatMap(exists -> exists
+                        ? Mono.fromFuture(() -> contractViewCache.ownerOfAsync(tokenId)).map(owner -> owner.equalsIgnoreCase(publicKey))
+                        : Mono.just(false))
+                .doOnSuccess(hasParticipated -> trace.record(MintStage.DUPLICATE_CHECK, stageStart));
+    }
+
+    private Mono<TransactionReceipt> mintNFT(String publicKey, String surveyId, String hashValue, String tokenURI,
+                                             MintTrace trace) {
+        return Mono.defer(() -> {
+            Credentials credentials = participationService.loadCredentials();
+            BigInteger tokenId = new BigInteger(hashValue, 16);
+            String data = encoder.mintTo(publicKey, tokenId, tokenURI).encodeFunctionCall();
+
+            long gasStart = trace.start();
+            return Mono.fromFuture(feeBumpEngine::currentFeesAsync)
+                    .doOnSuccess(fees -> trace.record(MintStage.GAS_PRICE, gasStart))
+                    // Ein Revert wird vor dem Journal und dem Senden erkannt
+                    .flatMap(fees -> {
+                        long preflightStart = trace.start();
+                        return Mono.fromFuture(() -> mintPreflight.simulateAsync(credentials.getAddress(), data))
+                                .doOnSuccess(ignored -> trace.record(MintStage.PREFLIGHT, preflightStart))
+                                .thenReturn(fees);
+                    })
+                    // Absicht vor dem Senden dauerhaft festhalten
+                    .flatMap(fees -> Mono.fromFuture(() -> mintJournal.recordIntentAsync(hashValue, publicKey, surveyId, tokenURI))
+                            .thenReturn(fees))
+                    .flatMap(fees -> Mono.fromFuture(() -> enqueueSend(credentials, hashValue, fees, data, trace)))
+                    .flatMap(sent -> awaitReceipt(credentials, hashValue, sent, trace))
+                    .map(receipt -> recordOutcome(hashValue, tokenId, receipt));
+        });
+    }
+
+    private synchronized CompletableFuture<MintTransactionSender.Sent> enqueueSend(Credentials credentials, String hashValue,
+                                                                                FeeQuote fees, String data, MintTrace trace) {
+        CompletableFuture<MintTransactionSender.Sent> next = sendQueue
+                .handle((previous, error) -> null)
+                .thenCompose(ignored -> signAndSend(credentials, hashValue, fees, data, trace));
+        sendQueue = next;
+        // Ein Abbruch des Aufrufers darf die Warteschlange nicht abschneiden. Das Senden läuft weiter,
+        // eine bereits vergebene Nonce wird also gesendet oder vom MintTransactionSender zurückgegeben.
+        return next.copy();
+    }
+
+    private CompletableFuture<MintTransactionSender.Sent> signAndSend(Credentials credentials, String hashValue,
+                                                                      FeeQuote fees, String data, MintTrace trace) {
+        long sendStart = trace.start();
+        return nonceCoordinator.nextNonceAsync(credentials)
+                .thenCompose(nonce -> transactionSender.send(credentials,
+                        fees.transaction(chainId, nonce, ParticipationService.GAS_LIMIT, contractAddress, data),
+                        List.of(hashValue)))
+                .whenComplete((sent, error) -> trace.record(MintStage.SEND, sendStart));
+    }
+
+    private Mono<TransactionReceipt> awaitReceipt(Credentials credentials, String hashValue,
+                                                  MintTransactionSender.Sent sent, MintTrace trace) {
+        long stageStart = trace.start();
+        // Polling über Timer statt Thread.sleep, hängende Transaktionen ersetzt die FeeBumpEngine.
+        // Ersatz mit gleicher Nonce braucht keinen Platz in der Sende-Warteschlange.
+        return feeBumpEngine.awaitReceiptAsync(sent.transaction(), sent.txHash(), Duration.ofMillis(receiptPollIntervalMs),
+                        replacement -> transactionSender.replace(credentials, replacement, List.of(hashValue)))
+                .doOnSuccess(receipt -> trace.record(MintStage.CONFIRMATION, stageStart));
+    }
+
+    private TransactionReceipt recordOutcome(String hashValue, BigInteger tokenId, TransactionReceipt receipt) {
+        if (!receipt.isStatusOK()) {
+            recordFailed(hashValue, "Reverted in " + receipt.getTransactionHash());
+            throw new CompletionException(new TransactionException(
+                    "Transaction " + receipt.getTransactionHash() + " has failed with status: " + receipt.getStatus(), receipt));
+        }
+        try {
+            mintJournal.recordConfirmed(hashValue, receipt.getTransactionHash());
+        } catch (IOException e) {
+            logger.error("Could not record confirmed mint for tokenId {} in the journal", tokenId, e);
+        }
+        contractViewCache.invalidateFromReceipt(receipt);
+        logger.info("NFT successfully minted with tokenId: {}. Transaction Hash: {}", tokenId, receipt.getTransactionHash());
+        return receipt;
+    }
+
+    private void recordFailed(String hashValue, String reason) {
+        try {
+            mintJournal.recordFailed(hashValue, reason);
+        } catch (IOException e) {
+            logger.error("Could not record failed mint in the journal", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package de.hsbi.binex.binex_backend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Alle Umfragen, für die NFTs vergeben werden
+@Component
+public class SurveyCatalog {
+
+    public record Survey(String id, String name, String description, String imageUrl) {
+    }
+
+    private final Map<String, Survey> surveys = new LinkedHashMap<>();
+
+    public SurveyCatalog() {
+        add(new Survey("cashlink-nft-event",
+                "Binex NFT Event: Blockchain trifft Finance",
+                "Teilnahmenachweis für das Binex Event \"Blockchain trifft Finance\" an der HSBI.",
+                "https://binex.hsbi.de/assets/1-binex-nft-event-blockchain-trifft-finance.ce070184.jpg"));
+        add(new Survey("hsbi-logo-nft",
+                "HSBI Logo NFT",
+                "Teilnahmenachweis für eine Umfrage der Hochschule Bielefeld.",
+                "https://www.designtagebuch.de/wp-content/uploads/mediathek/2023/04/hsbi-logo.jpg"));
+        add(new Survey("test-nft-blockchain",
+                "Binex Test NFT",
+                "Test-NFT für die Binex-Anbindung an die Q-Blockchain.",
+                "https://www.hsbi.de/multimedia/Hochschulverwaltung/HSK/Bilder+Berichterstattung/Fachbereiche/FB+5/Veranstaltungen/2022_09_20+Kryprow%C3%A4hrung+Blockchain+Peer_to_Peer/Slider/220920_FH_Kryptowaehrung_slider_10-height-635-width-1270-p-163374.jpg"));
+        add(new Survey("vpp-nft-1",
+                "Versuchspersonenpunkt NFT 1",
+                "Versuchspersonenpunkt für die Teilnahme an einer Umfrage der HSBI.",
+                "https://binex.hsbi.de/assets/VPP%20-%20NFT%201.d6cdab25.jpg"));
+        add(new Survey("vpp-nft-2",
+                "Versuchspersonenpunkt NFT 2",
+                "Versuchspersonenpunkt für die Teilnahme an einer Umfrage der HSBI.",
+                "https://binex.hsbi.de/assets/VPP%20-%20NFT%202.bee565e9.jpg"));
+        add(new Survey("vpp-nft-3",
+                "Versuchspersonenpunkt NFT 3",
+                "Versuchspersonenpunkt für die Teilnahme an einer Umfrage der HSBI.",
+                "https://binex.hsbi.de/assets/VPP%20-%20NFT%203.688f1fbb.jpg"));
+    }
+
+    private void add(Survey survey) {
+        surveys.put(survey.id(), survey);
+    }
+
+    public Optional<Survey> find(String surveyId) {
+        return Optional.ofNullable(surveys.get(surveyId));
+    }
+
+    public boolean contains(String surveyId) {
+        return surveys.containsKey(surveyId);
+    }
+
+    public Collection<Survey> all() {
+        return surveys.values();
+    }
+}
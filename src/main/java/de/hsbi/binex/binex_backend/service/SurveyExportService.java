@@ -0,0 +1,103 @@
+package de.hsbi.binex.binex_backend.service;
+
+import de.hsbi.binex.binex_backend.contracts.BinexNFT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.EventEncoder;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.tx.gas.StaticGasProvider;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+
+// Exportiert alle Mints einer Umfrage direkt von der Chain. Die Mint-Events werden seitenweise
+// über Blockbereiche gelesen und jede Zeile sofort geschrieben, es wird nichts gesammelt.
+@Service
+public class SurveyExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SurveyExportService.class);
+
+    private static final String ZERO_TOPIC = Numeric.toHexStringWithPrefixZeroPadded(BigInteger.ZERO, 64);
+
+    private final Web3j web3j;
+    private final SurveyCatalog surveyCatalog;
+    private final BinexNFT contract;
+    private final String contractAddress;
+    private final BigInteger fromBlock;
+    private final BigInteger blockRange;
+
+    public SurveyExportService(Web3j web3j, SurveyCatalog surveyCatalog,
+                               @Value("${app.contract.address}") String contractAddress,
+                               @Value("${app.export.from-block}") long fromBlock,
+                               @Value("${app.export.block-range}") long blockRange) {
+        this.web3j = web3j;
+        this.surveyCatalog = surveyCatalog;
+        this.contractAddress = contractAddress;
+        this.contract = BinexNFT.load(
+                contractAddress,
+                web3j,
+                Credentials.create("0x0"),
+                new StaticGasProvider(BigInteger.ZERO, BigInteger.ZERO)
+        );
+        this.fromBlock = BigInteger.valueOf(fromBlock);
+        this.blockRange = BigInteger.valueOf(Math.max(1, blockRange));
+    }
+
+    public boolean hasSurvey(String surveyId) {
+        return surveyCatalog.contains(surveyId);
+    }
+
+    public void exportMinted(String surveyId, Writer writer) throws Exception {
+        SurveyCatalog.Survey survey = surveyCatalog.find(surveyId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid Survey ID."));
+        writer.write("tokenId,receiver,transactionHash,blockNumber\n");
+
+        // Obergrenze zu Beginn festlegen, später gemintete Token gehören nicht mehr zum Export
+        BigInteger latest = web3j.ethBlockNumber().send().getBlockNumber();
+        long rows = 0;
+        for (BigInteger start = fromBlock; start.compareTo(latest) <= 0; start = start.add(blockRange)) {
+            BigInteger end = start.add(blockRange).subtract(BigInteger.ONE).min(latest);
+            EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(start), DefaultBlockParameter.valueOf(end),
+                    contractAddress);
+            filter.addSingleTopic(EventEncoder.encode(BinexNFT.TRANSFER_EVENT));
+            filter.addSingleTopic(ZERO_TOPIC);
+
+            EthLog page = web3j.ethGetLogs(filter).send();
+            if (page.hasError()) {
+                throw new IOException("eth_getLogs failed for blocks " + start + "-" + end + ": "
+                        + page.getError().getMessage());
+            }
+            for (EthLog.LogResult<?> result : page.getLogs()) {
+                Log log = (Log) result.get();
+                BigInteger tokenId = Numeric.toBigInt(log.getTopics().get(3));
+                // Die Umfrage steht nur im TokenURI, daher wird er je gemintetem Token abgefragt
+                if (belongsTo(survey, contract.tokenURI(tokenId).send())) {
+                    writer.write(tokenId + "," + toAddress(log.getTopics().get(2)) + "," + log.getTransactionHash()
+                            + "," + log.getBlockNumber() + "\n");
+                    rows++;
+                }
+            }
+            writer.flush();
+        }
+        logger.info("Exported {} minted participations for survey {} up to block {}", rows, surveyId, latest);
+    }
+
+    // TokenURIs zeigen entweder auf /api/metadata mit ?survey= oder direkt auf das Bild der Umfrage
+    static boolean belongsTo(SurveyCatalog.Survey survey, String tokenURI) {
+        return tokenURI.equals(survey.imageUrl()) || tokenURI.endsWith("?survey=" + survey.id());
+    }
+
+    private static String toAddress(String topic) {
+        String hex = Numeric.cleanHexPrefix(topic);
+        return "0x" + hex.substring(hex.length() - 40);
+    }
+}
@@ -0,0 +1,50 @@
+package de.hsbi.binex.binex_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// ERC-721 Metadaten, einmal pro Umfrage serialisiert und danach nur noch ausgeliefert
+@Service
+public class TokenMetadataService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenMetadataService.class);
+
+    public record TokenMetadata(byte[] json, String eTag) {
+    }
+
+    private final Map<String, TokenMetadata> metadataBySurvey = new HashMap<>();
+
+    public TokenMetadataService(SurveyCatalog surveyCatalog, ObjectMapper objectMapper) throws Exception {
+        for (SurveyCatalog.Survey survey : surveyCatalog.all()) {
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("name", survey.name());
+            metadata.put("description", survey.description());
+            metadata.put("image", survey.imageUrl());
+            metadata.put("attributes", List.of(Map.of("trait_type", "Survey", "value", survey.id())));
+
+            byte[] json = objectMapper.writeValueAsBytes(metadata);
+            metadataBySurvey.put(survey.id(), new TokenMetadata(json, eTag(json)));
+        }
+        logger.info("Precomputed token metadata for {} surveys", metadataBySurvey.size());
+    }
+
+    public Optional<TokenMetadata> getMetadata(String surveyId) {
+        return Optional.ofNullable(metadataBySurvey.get(surveyId));
+    }
+
+    private static String eTag(byte[] json) throws NoSuchAlgorithmException {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+        return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+    }
+}
@@ -3,7 +3,7 @@ package de.hsbi.binex.binex_backend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "app.cache.transfer-watch.enabled=false")
 class BinexBackendApplicationTests {
 
 	@Test
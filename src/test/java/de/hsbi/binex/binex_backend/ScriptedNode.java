@@ -0,0 +1,76 @@
+package de.hsbi.binex.binex_backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.web3j.protocol.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// JSON-RPC-Knoten für Tests, dessen Antworten je Methode vorgegeben werden
+public class ScriptedNode extends Service {
+
+	@FunctionalInterface
+	public interface Handler {
+		// Rückgabewert wird als result gesendet, eine RpcError als error
+		Object handle(JsonNode params) throws IOException;
+	}
+
+	public static class RpcError extends RuntimeException {
+
+		private final int code;
+
+		public RpcError(int code, String message) {
+			super(message);
+			this.code = code;
+		}
+	}
+
+	private final ObjectMapper json = new ObjectMapper();
+	private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+	public final List<String> calls = new CopyOnWriteArrayList<>();
+
+	public ScriptedNode() {
+		super(false);
+	}
+
+	public ScriptedNode on(String method, Handler handler) {
+		handlers.put(method, handler);
+		return this;
+	}
+
+	public long count(String method) {
+		return calls.stream().filter(method::equals).count();
+	}
+
+	@Override
+	protected InputStream performIO(String payload) throws IOException {
+		JsonNode request = json.readTree(payload);
+		String method = request.get("method").asText();
+		calls.add(method);
+		Handler handler = handlers.get(method);
+		if (handler == null) {
+			throw new IOException("Unsupported method " + method);
+		}
+
+		ObjectNode response = json.createObjectNode();
+		response.put("jsonrpc", "2.0");
+		response.set("id", request.get("id"));
+		try {
+			response.putPOJO("result", handler.handle(request.get("params")));
+		} catch (RpcError e) {
+			response.putObject("error").put("code", e.code).put("message", e.getMessage());
+		}
+		return new ByteArrayInputStream(json.writeValueAsBytes(response));
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,49 @@
+package de.hsbi.binex.binex_backend.controller;
+
+import de.hsbi.binex.binex_backend.service.SurveyCatalog;
+import de.hsbi.binex.binex_backend.service.TokenMetadataService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(MetadataController.class)
+@Import({TokenMetadataService.class, SurveyCatalog.class})
+class MetadataControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TokenMetadataService tokenMetadataService;
+
+	@Test
+	void servesMetadataWithCachingHeaders() throws Exception {
+		mockMvc.perform(get("/api/metadata/123").param("survey", "vpp-nft-2"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", tokenMetadataService.getMetadata("vpp-nft-2").orElseThrow().eTag()))
+				.andExpect(header().string("Cache-Control", containsString("max-age=31536000")))
+				.andExpect(jsonPath("$.name").value("Versuchspersonenpunkt NFT 2"))
+				.andExpect(jsonPath("$.image").value(containsString("VPP%20-%20NFT%202")));
+	}
+
+	@Test
+	void answersMatchingETagWithNotModified() throws Exception {
+		String eTag = tokenMetadataService.getMetadata("vpp-nft-1").orElseThrow().eTag();
+
+		mockMvc.perform(get("/api/metadata/123").param("survey", "vpp-nft-1").header("If-None-Match", eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+	}
+
+	@Test
+	void rejectsUnknownSurvey() throws Exception {
+		mockMvc.perform(get("/api/metadata/123").param("survey", "unknown"))
+				.andExpect(status().isNotFound());
+	}
+}
@@ -0,0 +1,97 @@
+package de.hsbi.binex.binex_backend.controller;
+
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.monitoring.MintStage;
+import de.hsbi.binex.binex_backend.monitoring.MintTrace;
+import de.hsbi.binex.binex_backend.monitoring.RequestEventLogger;
+import de.hsbi.binex.binex_backend.monitoring.SlowRequestRecorder;
+import de.hsbi.binex.binex_backend.monitoring.SurveyStatistics;
+import de.hsbi.binex.binex_backend.rpc.AdaptiveConcurrencyLimiter;
+import de.hsbi.binex.binex_backend.service.ContractViewCache;
+import de.hsbi.binex.binex_backend.service.MintScheduler;
+import de.hsbi.binex.binex_backend.service.ParticipationService;
+import de.hsbi.binex.binex_backend.service.SurveyCatalog;
+import de.hsbi.binex.binex_backend.service.SurveyExportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(value = {ParticipationController.class, AdminController.class},
+		properties = {"app.admin.token=secret", "app.monitoring.slow-request-threshold-ms=20"})
+@Import({SlowRequestRecorder.class, RequestEventLogger.class, SurveyStatistics.class, SurveyCatalog.class})
+class ParticipationControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private ParticipationService participationService;
+
+	@MockBean
+	private ContractViewCache contractViewCache;
+
+	@MockBean
+	private FeeBumpEngine feeBumpEngine;
+
+	@MockBean
+	private SurveyExportService surveyExportService;
+
+	@MockBean
+	private MintScheduler mintScheduler;
+
+	@MockBean
+	private AdaptiveConcurrencyLimiter rpcLimiter;
+
+	@Test
+	void reportsStagesInServerTimingAndKeepsSlowRequests() throws Exception {
+		// Durchläuft die Stufen eines Mints ohne Batch, die Bestätigung liegt über dem Schwellwert
+		when(participationService.processParticipation(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+			MintTrace trace = invocation.getArgument(4);
+			trace.setSurveyId("vpp-nft-1");
+			for (MintStage stage : List.of(MintStage.VALIDATION, MintStage.HASHING, MintStage.DUPLICATE_CHECK,
+					MintStage.GAS_PRICE, MintStage.SEND)) {
+				trace.record(stage, trace.start());
+			}
+			for (String method : List.of("eth_call", "eth_gasPrice", "eth_sendRawTransaction")) {
+				trace.recordRpc(method, trace.start(), true);
+			}
+			long confirmationStart = trace.start();
+			Thread.sleep(30);
+			trace.recordRpc("eth_getTransactionReceipt", confirmationStart, true);
+			trace.record(MintStage.CONFIRMATION, confirmationStart);
+			return true;
+		});
+
+		mockMvc.perform(post("/api/mint-nft")
+						.param("publicKey", "0x0000000000000000000000000000000000000001")
+						.param("surveyId", "vpp-nft-1")
+						.param("participantPoints", "1")
+						.header("X-Request-Id", "slow-mint"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Request-Id", "slow-mint"))
+				.andExpect(header().string("Server-Timing", matchesPattern(
+						"validation;dur=[0-9.]+, hash;dur=[0-9.]+, duplicate_check;dur=[0-9.]+, gas_price;dur=[0-9.]+, "
+								+ "send;dur=[0-9.]+, confirmation;dur=[0-9.]+, total;dur=[0-9.]+")));
+
+		mockMvc.perform(get("/api/admin/slow-requests").header("X-Admin-Token", "secret"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].requestId").value("slow-mint"))
+				.andExpect(jsonPath("$[0].outcome").value("minted"))
+				.andExpect(jsonPath("$[0].surveyId").value("vpp-nft-1"))
+				.andExpect(jsonPath("$[0].rpcCalls[*].method").value(contains(
+						"eth_call", "eth_gasPrice", "eth_sendRawTransaction", "eth_getTransactionReceipt")));
+	}
+}
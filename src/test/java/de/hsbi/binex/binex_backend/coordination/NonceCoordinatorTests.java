@@ -0,0 +1,146 @@
+package de.hsbi.binex.binex_backend.coordination;
+
+import de.hsbi.binex.binex_backend.ScriptedNode;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.journal.MintJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.utils.Numeric;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NonceCoordinatorTests {
+
+	private static final Credentials CREDENTIALS =
+			Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+
+	@TempDir
+	Path directory;
+
+	private MintJournal journal;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		journal = new MintJournal();
+		ReflectionTestUtils.setField(journal, "path", directory.resolve("journal.dat").toString());
+		ReflectionTestUtils.setField(journal, "capacity", 1 << 20);
+		ReflectionTestUtils.setField(journal, "groupCommitWindowMs", 1L);
+		journal.open();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		journal.close();
+	}
+
+	@Test
+	void instancesSharingAStoreNeverHandOutTheSameNonce() throws Exception {
+		// Knoten ohne geminte Transaktionen, der Pending-Zähler bleibt bei 0
+		Web3j web3j = Web3j.build(new ScriptedNode().on("eth_getTransactionCount", params -> "0x0"));
+		CoordinationStore store = new FileCoordinationStore(directory.resolve("nonce-leases.json"));
+		NonceCoordinator first = coordinator(web3j, store);
+		NonceCoordinator second = coordinator(web3j, store);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<BigInteger>> futures = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				NonceCoordinator instance = i % 2 == 0 ? first : second;
+				futures.add(executor.submit((Callable<BigInteger>) () -> instance.nextNonce(CREDENTIALS)));
+			}
+			List<Long> nonces = new ArrayList<>();
+			for (Future<BigInteger> future : futures) {
+				nonces.add(future.get().longValueExact());
+			}
+			assertThat(nonces).doesNotHaveDuplicates().allMatch(nonce -> nonce >= 0 && nonce < 20);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void expiredLeasesAreReclaimedWithoutMinedNonces() {
+		SignerState state = new SignerState();
+		assertThat(state.acquire("a", 5, 0, 0, 1000)).containsExactly(0L, 1L, 2L, 3L, 4L);
+
+		// Instanz a ist ausgefallen, 0 und 1 wurden noch gemined
+		assertThat(state.acquire("b", 5, 2, 2000, 1000)).containsExactly(2L, 3L, 4L, 5L, 6L);
+		assertThat(state.renew("a", List.of(), 2000, 1000)).isFalse();
+		assertThat(state.getLeases()).containsOnlyKeys("b");
+	}
+
+	@Test
+	void fillsAHandedOutNonceThatNeverGetsMined() {
+		SignerState state = new SignerState();
+		assertThat(state.acquire("a", 3, 0, 0, 60_000)).containsExactly(0L, 1L, 2L);
+		// Nonce 0 wurde vergeben, ihre Transaktion kam aber nie beim Knoten an
+		assertThat(state.renew("a", List.of(1L, 2L), 0, 60_000)).isTrue();
+
+		assertThat(state.claimGap(0, false, 0, 1000)).isEmpty();
+		assertThat(state.claimGap(0, false, 500, 1000)).isEmpty();
+		assertThat(state.claimGap(0, false, 1000, 1000)).contains(0L);
+
+		// Unbenutzte Nonces eines aktiven Leases bleiben ihrem Besitzer
+		assertThat(state.claimGap(1, false, 1000, 1000)).isEmpty();
+		assertThat(state.claimGap(1, false, 5000, 1000)).isEmpty();
+	}
+
+	@Test
+	void sendsNoFillerWhileATransactionWaitsForTheNonce() throws Exception {
+		long[] pending = {1};
+		ScriptedNode node = new ScriptedNode()
+				.on("eth_getTransactionCount", params -> Numeric.encodeQuantity(BigInteger.valueOf(
+						"latest".equals(params.get(1).asText()) ? 0 : pending[0])))
+				.on("eth_gasPrice", params -> "0x3b9aca00")
+				.on("eth_sendRawTransaction", params -> Hash.sha3(params.get(0).asText()));
+		Web3j web3j = Web3j.build(node);
+		NonceCoordinator coordinator = new NonceCoordinator(web3j, new InMemoryCoordinationStore(),
+				new FeeBumpEngine(web3j, "legacy", 30, 15, BigDecimal.valueOf(100), 10, 60), journal, 35443, 5, 60, 0);
+		String signer = CREDENTIALS.getAddress().toLowerCase();
+
+		// Der Mint mit Nonce 0 hängt wegen zu niedriger Gebühren im Pool, die folgenden Nonces sind vergeben
+		coordinator.nextNonce(CREDENTIALS);
+		coordinator.fillGap(signer, CREDENTIALS);
+		coordinator.fillGap(signer, CREDENTIALS);
+		assertThat(node.count("eth_sendRawTransaction")).isZero();
+
+		// Aus dem Pool gefallen, aber noch im Journal: der Abgleich sendet ihn erneut
+		pending[0] = 0;
+		RawTransaction mint = RawTransaction.createTransaction(BigInteger.ZERO, BigInteger.TEN.pow(9),
+				BigInteger.valueOf(400_000), CREDENTIALS.getAddress(), "0x");
+		String signedTransaction = Numeric.toHexString(TransactionEncoder.signMessage(mint, 35443, CREDENTIALS));
+		journal.recordIntent("aa", "0x0000000000000000000000000000000000000001", "vpp-nft-1", "uri-aa");
+		journal.recordSigned("aa", Hash.sha3(signedTransaction), signedTransaction);
+		coordinator.fillGap(signer, CREDENTIALS);
+		coordinator.fillGap(signer, CREDENTIALS);
+		assertThat(node.count("eth_sendRawTransaction")).isZero();
+
+		// Erst eine wirklich leere Nonce wird geschlossen
+		journal.recordFailed("aa", "rejected");
+		coordinator.fillGap(signer, CREDENTIALS);
+		assertThat(node.count("eth_sendRawTransaction")).isEqualTo(1);
+	}
+
+	private NonceCoordinator coordinator(Web3j web3j, CoordinationStore store) {
+		FeeBumpEngine feeBumpEngine = new FeeBumpEngine(web3j, "legacy", 30, 15, BigDecimal.valueOf(100), 10, 60);
+		return new NonceCoordinator(web3j, store, feeBumpEngine, journal, 35443, 5, 60, 120);
+	}
+}
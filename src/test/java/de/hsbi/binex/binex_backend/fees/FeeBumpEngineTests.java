@@ -0,0 +1,81 @@
+package de.hsbi.binex.binex_backend.fees;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.hsbi.binex.binex_backend.ScriptedNode;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.transaction.type.Transaction1559;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FeeBumpEngineTests {
+
+	private static final BigInteger GWEI = BigInteger.TEN.pow(9);
+
+	private final FeeBumpEngine engine = new FeeBumpEngine(null, "auto", 30, 15, BigDecimal.valueOf(100), 3000, 600);
+
+	@Test
+	void bumpsLegacyGasPriceForSameNonce() {
+		RawTransaction stuck = RawTransaction.createTransaction(BigInteger.valueOf(7), GWEI.multiply(BigInteger.TEN),
+				BigInteger.valueOf(400_000), "0x01", "0xabcd");
+
+		RawTransaction replacement = engine.bump(stuck, FeeQuote.legacy(GWEI)).orElseThrow();
+
+		assertThat(replacement.getNonce()).isEqualTo(BigInteger.valueOf(7));
+		assertThat(replacement.getData()).isEqualTo(stuck.getData());
+		assertThat(replacement.getGasPrice()).isEqualTo(GWEI.multiply(BigInteger.valueOf(115)).divide(BigInteger.TEN));
+	}
+
+	@Test
+	void followsNetworkFeesAboveTheBumpUpToTheCap() {
+		RawTransaction stuck = RawTransaction.createTransaction(35443, BigInteger.ONE, BigInteger.valueOf(400_000),
+				"0x01", BigInteger.ZERO, "0xabcd", GWEI, GWEI.multiply(BigInteger.valueOf(20)));
+
+		RawTransaction replacement = engine.bump(stuck,
+				FeeQuote.eip1559(GWEI.multiply(BigInteger.valueOf(500)), GWEI.multiply(BigInteger.valueOf(3)))).orElseThrow();
+
+		Transaction1559 fees = (Transaction1559) replacement.getTransaction();
+		assertThat(fees.getChainId()).isEqualTo(35443);
+		assertThat(fees.getMaxFeePerGas()).isEqualTo(GWEI.multiply(BigInteger.valueOf(100)));
+		assertThat(fees.getMaxPriorityFeePerGas()).isEqualTo(GWEI.multiply(BigInteger.valueOf(3)));
+	}
+
+	@Test
+	void stopsBumpingAtTheCap() {
+		RawTransaction stuck = RawTransaction.createTransaction(35443, BigInteger.ONE, BigInteger.valueOf(400_000),
+				"0x01", BigInteger.ZERO, "0xabcd", GWEI, GWEI.multiply(BigInteger.valueOf(95)));
+
+		Optional<RawTransaction> replacement = engine.bump(stuck, FeeQuote.eip1559(GWEI, GWEI));
+
+		assertThat(replacement).isEmpty();
+	}
+
+	@Test
+	void keepsWaitingWhenFeesCannotBeFetched() throws Exception {
+		AtomicInteger polls = new AtomicInteger();
+		ScriptedNode node = new ScriptedNode()
+				.on("eth_gasPrice", params -> {
+					throw new ScriptedNode.RpcError(-32005, "rate limited");
+				})
+				.on("eth_getTransactionReceipt", params -> polls.incrementAndGet() < 3 ? null
+						: new ObjectMapper().createObjectNode().put("transactionHash", "0xaa").put("status", "0x1"));
+		// Inklusionsziel 0: jede Abfrage ohne Receipt versucht einen Ersatz
+		FeeBumpEngine blocking = new FeeBumpEngine(Web3j.build(node), "legacy", 0, 15, BigDecimal.valueOf(100), 1, 60);
+		RawTransaction sent = RawTransaction.createTransaction(BigInteger.ONE, GWEI, BigInteger.valueOf(400_000), "0x01", "0xabcd");
+
+		TransactionReceipt receipt = blocking.awaitReceipt(sent, List.of("0xaa"), replacement -> {
+			throw new AssertionError("No replacement without fees");
+		});
+
+		assertThat(receipt.getTransactionHash()).isEqualTo("0xaa");
+		assertThat(node.count("eth_gasPrice")).isGreaterThanOrEqualTo(2);
+	}
+}
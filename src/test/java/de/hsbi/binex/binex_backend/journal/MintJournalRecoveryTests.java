@@ -0,0 +1,239 @@
+package de.hsbi.binex.binex_backend.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.hsbi.binex.binex_backend.ScriptedNode;
+import de.hsbi.binex.binex_backend.contracts.BinexNFT;
+import de.hsbi.binex.binex_backend.coordination.InMemoryCoordinationStore;
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.abi.EventEncoder;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MintJournalRecoveryTests {
+
+	private static final String CONTRACT = "0xf441041b175329b2d1c28d321ea47f2defc86dde";
+
+	private static final Credentials CREDENTIALS =
+			Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+
+	private static final String RECEIVER = "0x0000000000000000000000000000000000000001";
+
+	private static final String TOKEN_ID = "aa";
+
+	private static final String EXISTS_SELECTOR = Hash.sha3String("exists(uint256)").substring(0, 10);
+
+	private final ObjectMapper json = new ObjectMapper();
+
+	@TempDir
+	Path directory;
+
+	private RecordingJournal journal;
+	private ScriptedNode node;
+	private MintJournalRecovery recovery;
+
+	// Zustand des Stand-in-Knotens
+	private final Map<String, ObjectNode> receipts = new ConcurrentHashMap<>();
+	private volatile String owner;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		journal = new RecordingJournal();
+		ReflectionTestUtils.setField(journal, "path", directory.resolve("journal.dat").toString());
+		ReflectionTestUtils.setField(journal, "capacity", 1 << 20);
+		ReflectionTestUtils.setField(journal, "groupCommitWindowMs", 1L);
+		journal.open();
+
+		node = new ScriptedNode()
+				.on("eth_getTransactionReceipt", params -> receipts.get(params.get(0).asText()))
+				.on("eth_call", params -> {
+					String data = params.get(0).get("data").asText();
+					String current = owner;
+					if (data.startsWith(EXISTS_SELECTOR)) {
+						return word(current == null ? BigInteger.ZERO : BigInteger.ONE);
+					}
+					if (current == null) {
+						throw new ScriptedNode.RpcError(3, "execution reverted: ERC721: invalid token ID");
+					}
+					return word(Numeric.toBigInt(current));
+				});
+		Web3j web3j = Web3j.build(node);
+		FeeBumpEngine feeBumpEngine = new FeeBumpEngine(web3j, "legacy", 30, 15, BigDecimal.valueOf(100), 10, 60);
+		NonceCoordinator nonceCoordinator = new NonceCoordinator(web3j, new InMemoryCoordinationStore(), feeBumpEngine, journal,
+				35443, 5, 60, 120);
+		recovery = new MintJournalRecovery(journal, web3j, feeBumpEngine, nonceCoordinator);
+		ReflectionTestUtils.setField(recovery, "contractAddress", CONTRACT);
+		ReflectionTestUtils.setField(recovery, "chainId", 35443L);
+		ReflectionTestUtils.setField(recovery, "retryDelayMs", 10L);
+		ReflectionTestUtils.setField(recovery, "receiptTimeoutSeconds", 600L);
+		journal.markReady();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		journal.close();
+	}
+
+	@Test
+	void confirmsAMintWhoseReceiptIsAlreadyThere() throws Exception {
+		String txHash = recordSigned();
+		receipts.put(txHash, receipt(txHash, TOKEN_ID));
+
+		recovery.reconcile(pending());
+
+		assertThat(journal.outcomes).containsEntry(TOKEN_ID, "confirmed " + txHash);
+		assertThat(node.count("eth_call")).isZero();
+		assertThat(node.count("eth_sendRawTransaction")).isZero();
+	}
+
+	@Test
+	void failsATokenSkippedInItsBatch() throws Exception {
+		String txHash = recordSigned();
+		receipts.put(txHash, receipt(txHash, "bb"));
+
+		recovery.reconcile(pending());
+
+		assertThat(journal.outcomes).containsEntry(TOKEN_ID, "failed Skipped in batch " + txHash);
+		assertThat(node.count("eth_sendRawTransaction")).isZero();
+	}
+
+	@Test
+	void failsATokenAlreadyOwnedBySomeoneElse() throws Exception {
+		recordSigned();
+		owner = "0x0000000000000000000000000000000000000002";
+
+		recovery.reconcile(pending());
+
+		assertThat(journal.outcomes).containsEntry(TOKEN_ID, "failed Token is owned by " + owner);
+		assertThat(node.count("eth_sendRawTransaction")).isZero();
+	}
+
+	@Test
+	void failsAMintThatWasNeverBroadcast() throws Exception {
+		journal.recordIntent(TOKEN_ID, RECEIVER, "vpp-nft-1", "uri-aa");
+
+		recovery.reconcile(pending());
+
+		assertThat(journal.outcomes).containsEntry(TOKEN_ID, "failed Never broadcast before restart");
+		assertThat(node.count("eth_sendRawTransaction")).isZero();
+	}
+
+	@Test
+	void failsWhenTheRebroadcastIsRejected() throws Exception {
+		recordSigned();
+		node.on("eth_sendRawTransaction", params -> {
+			throw new ScriptedNode.RpcError(-32000, "nonce too low");
+		});
+
+		recovery.reconcile(pending());
+
+		assertThat(journal.outcomes).containsEntry(TOKEN_ID, "failed Rebroadcast rejected: nonce too low");
+	}
+
+	@Test
+	void rebroadcastsAndWaitsForTheReceipt() throws Exception {
+		String txHash = recordSigned();
+		node.on("eth_sendRawTransaction", params -> {
+			// Der Knoten hatte die Transaktion verloren und mined sie erst nach dem erneuten Senden
+			receipts.put(txHash, receipt(txHash, TOKEN_ID));
+			return txHash;
+		});
+
+		recovery.reconcile(pending());
+
+		assertThat(journal.outcomes).containsEntry(TOKEN_ID, "confirmed " + txHash);
+		assertThat(node.count("eth_sendRawTransaction")).isEqualTo(1);
+	}
+
+	@Test
+	void reconcilesOnlyEntriesNoMintPathWaitsForAnyMore() throws Exception {
+		String txHash = recordSigned();
+		receipts.put(txHash, receipt(txHash, TOKEN_ID));
+
+		recovery.reconcileStale();
+		assertThat(journal.outcomes).isEmpty();
+
+		// Nach dem Receipt-Timeout gibt es keinen Aufrufer mehr, der das Ergebnis festhält
+		ReflectionTestUtils.setField(recovery, "receiptTimeoutSeconds", -1L);
+		recovery.reconcileStale();
+		assertThat(journal.outcomes).containsEntry(TOKEN_ID, "confirmed " + txHash);
+	}
+
+	private String recordSigned() throws IOException {
+		RawTransaction transaction = RawTransaction.createTransaction(BigInteger.ZERO, BigInteger.TEN.pow(9),
+				BigInteger.valueOf(400_000), CONTRACT, "0x");
+		String signedTransaction = Numeric.toHexString(TransactionEncoder.signMessage(transaction, 35443, CREDENTIALS));
+		String txHash = Hash.sha3(signedTransaction);
+		journal.recordIntent(TOKEN_ID, RECEIVER, "vpp-nft-1", "uri-aa");
+		journal.recordSigned(TOKEN_ID, txHash, signedTransaction);
+		return txHash;
+	}
+
+	private PendingMint pending() {
+		return journal.pendingMint(TOKEN_ID).orElseThrow();
+	}
+
+	private ObjectNode receipt(String txHash, String mintedTokenId) {
+		ArrayNode logs = json.createArrayNode();
+		ObjectNode log = logs.addObject();
+		log.put("address", CONTRACT);
+		log.put("data", "0x");
+		log.putArray("topics")
+				.add(EventEncoder.encode(BinexNFT.TRANSFER_EVENT))
+				.add(word(BigInteger.ZERO))
+				.add(word(Numeric.toBigInt(RECEIVER)))
+				.add(word(new BigInteger(mintedTokenId, 16)));
+
+		ObjectNode receipt = json.createObjectNode();
+		receipt.put("transactionHash", txHash);
+		receipt.put("status", "0x1");
+		receipt.put("blockNumber", "0x1");
+		receipt.put("gasUsed", "0x5208");
+		receipt.put("cumulativeGasUsed", "0x5208");
+		receipt.put("to", CONTRACT);
+		receipt.set("logs", logs);
+		return receipt;
+	}
+
+	private static String word(BigInteger value) {
+		return Numeric.toHexStringWithPrefixZeroPadded(value, 64);
+	}
+
+	// Hält das Ergebnis je Token fest, das die Recovery ins Journal schreibt
+	static class RecordingJournal extends MintJournal {
+
+		final Map<String, String> outcomes = new ConcurrentHashMap<>();
+
+		@Override
+		public void recordConfirmed(String tokenId, String txHash) throws IOException {
+			outcomes.put(tokenId, "confirmed " + txHash);
+			super.recordConfirmed(tokenId, txHash);
+		}
+
+		@Override
+		public void recordFailed(String tokenId, String reason) throws IOException {
+			outcomes.put(tokenId, "failed " + reason);
+			super.recordFailed(tokenId, reason);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package de.hsbi.binex.binex_backend.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MintJournalTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replaysOnlyUnfinishedMints() throws Exception {
+		Path file = directory.resolve("journal.dat");
+
+		MintJournal journal = open(file);
+		journal.recordIntent("aa", "0xreceiver1", "vpp-nft-1", "uri-1");
+		journal.recordSigned("aa", "0xhash1", "0xsigned1");
+		journal.recordIntent("bb", "0xreceiver2", "vpp-nft-2", "uri-2");
+		journal.recordSigned("bb", "0xhash2", "0xsigned2");
+		journal.recordConfirmed("bb", "0xhash2");
+		journal.recordIntent("cc", "0xreceiver3", "vpp-nft-3", "uri-3");
+		journal.recordFailed("cc", "rejected");
+		journal.close();
+
+		MintJournal reopened = open(file);
+		List<PendingMint> pending = reopened.pendingMints();
+		reopened.close();
+
+		assertThat(pending).hasSize(1);
+		assertThat(pending.get(0).tokenId()).isEqualTo("aa");
+		assertThat(pending.get(0).receiver()).isEqualTo("0xreceiver1");
+		assertThat(pending.get(0).latestTransaction()).isEqualTo(new SignedTransaction("0xhash1", "0xsigned1"));
+	}
+
+	@Test
+	void compactsWhenFull() throws Exception {
+		Path file = directory.resolve("journal.dat");
+
+		MintJournal journal = open(file);
+		for (int i = 0; i < 200; i++) {
+			String tokenId = Integer.toHexString(i);
+			journal.recordIntent(tokenId, "0xreceiver", "vpp-nft-1", "uri");
+			journal.recordConfirmed(tokenId, "0xhash");
+		}
+		journal.recordIntent("ff00", "0xreceiver", "vpp-nft-1", "uri");
+		journal.close();
+
+		MintJournal reopened = open(file);
+		assertThat(reopened.pendingMints()).extracting(PendingMint::tokenId).containsExactly("ff00");
+		reopened.close();
+	}
+
+	@Test
+	void completesAsyncRecordsOnceFlushed() throws Exception {
+		MintJournal journal = open(directory.resolve("journal.dat"));
+
+		journal.recordIntentAsync("aa", "0xreceiver", "vpp-nft-1", "uri").get(5, TimeUnit.SECONDS);
+		journal.recordSignedAsync("aa", "0xhash", "0xsigned").get(5, TimeUnit.SECONDS);
+
+		assertThat(journal.pendingMint("aa")).hasValueSatisfying(mint ->
+				assertThat(mint.transactions()).containsExactly(new SignedTransaction("0xhash", "0xsigned")));
+		journal.close();
+	}
+
+	@Test
+	void leavesTheJournalOfARunningInstanceAlone() throws Exception {
+		Path file = directory.resolve("journal.dat");
+
+		MintJournal running = open(file);
+		running.recordIntent("aa", "0xreceiver", "vpp-nft-1", "uri");
+		MintJournal started = open(file);
+		assertThat(started.pendingMints()).isEmpty();
+		started.close();
+		running.close();
+
+		// Nach dem Ende der Instanz wird ihr Journal übernommen und gelöscht
+		MintJournal adopting = open(file);
+		assertThat(adopting.pendingMints()).extracting(PendingMint::tokenId).containsExactly("aa");
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files.filter(candidate -> candidate.toString().endsWith(".dat"))).hasSize(1);
+		}
+		adopting.close();
+	}
+
+	private static MintJournal open(Path file) throws Exception {
+		MintJournal journal = new MintJournal();
+		ReflectionTestUtils.setField(journal, "path", file.toString());
+		ReflectionTestUtils.setField(journal, "capacity", 4096);
+		ReflectionTestUtils.setField(journal, "groupCommitWindowMs", 1L);
+		journal.open();
+		return journal;
+	}
+}
@@ -0,0 +1,109 @@
+package de.hsbi.binex.binex_backend.journal;
+
+import de.hsbi.binex.binex_backend.ScriptedNode;
+import de.hsbi.binex.binex_backend.coordination.InMemoryCoordinationStore;
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MintTransactionSenderTests {
+
+	private static final Credentials CREDENTIALS =
+			Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+
+	private static final BigInteger GAS_PRICE = BigInteger.TEN.pow(9);
+
+	@TempDir
+	Path directory;
+
+	private MintJournal journal;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		journal = new MintJournal();
+		ReflectionTestUtils.setField(journal, "path", directory.resolve("journal.dat").toString());
+		ReflectionTestUtils.setField(journal, "capacity", 1 << 20);
+		ReflectionTestUtils.setField(journal, "groupCommitWindowMs", 1L);
+		journal.open();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		journal.close();
+	}
+
+	@Test
+	void reusesTheNonceOfASendThatNeverReachedTheNode() throws Exception {
+		// Knoten mined nur lückenlos, eine verlorene Nonce hielte alle folgenden zurück
+		Set<Long> pool = new TreeSet<>();
+		long[] mined = {0};
+		AtomicBoolean failNextSend = new AtomicBoolean(true);
+		ScriptedNode node = new ScriptedNode()
+				.on("eth_getTransactionCount", params -> Numeric.encodeQuantity(BigInteger.valueOf(mined[0])))
+				.on("eth_sendRawTransaction", params -> {
+					if (failNextSend.getAndSet(false)) {
+						throw new IOException("Connection reset");
+					}
+					String signedTransaction = params.get(0).asText();
+					synchronized (pool) {
+						pool.add(TransactionDecoder.decode(signedTransaction).getNonce().longValueExact());
+						while (pool.remove(mined[0])) {
+							mined[0]++;
+						}
+					}
+					return Hash.sha3(signedTransaction);
+				});
+		Web3j web3j = Web3j.build(node);
+		FeeBumpEngine feeBumpEngine = new FeeBumpEngine(web3j, "legacy", 30, 15, BigDecimal.valueOf(100), 10, 60);
+		NonceCoordinator nonceCoordinator = new NonceCoordinator(web3j, new InMemoryCoordinationStore(), feeBumpEngine, journal,
+				35443, 5, 60, 120);
+		MintTransactionSender sender = new MintTransactionSender(web3j, journal, nonceCoordinator, 35443);
+
+		List<String> tokenIds = List.of("a1", "a2", "a3", "a4");
+		for (String tokenId : tokenIds) {
+			journal.recordIntent(tokenId, "0x0000000000000000000000000000000000000001", "vpp-nft-1", "uri-" + tokenId);
+		}
+
+		CompletableFuture<MintTransactionSender.Sent> lost = send(sender, nonceCoordinator, "a1");
+		assertThatThrownBy(lost::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IOException.class);
+		for (String tokenId : tokenIds.subList(1, tokenIds.size())) {
+			send(sender, nonceCoordinator, tokenId).get();
+		}
+
+		assertThat(mined[0]).isEqualTo(3);
+		assertThat(pool).isEmpty();
+		assertThat(journal.pendingMints()).extracting(PendingMint::tokenId)
+				.containsExactlyInAnyOrder("a2", "a3", "a4");
+	}
+
+	private static CompletableFuture<MintTransactionSender.Sent> send(MintTransactionSender sender,
+																	  NonceCoordinator nonceCoordinator, String tokenId) throws IOException {
+		RawTransaction transaction = RawTransaction.createTransaction(nonceCoordinator.nextNonce(CREDENTIALS), GAS_PRICE,
+				BigInteger.valueOf(21_000), CREDENTIALS.getAddress(), BigInteger.ZERO, "");
+		return sender.send(CREDENTIALS, transaction, List.of(tokenId));
+	}
+}
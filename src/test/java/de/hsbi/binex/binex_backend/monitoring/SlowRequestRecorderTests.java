@@ -0,0 +1,33 @@
+package de.hsbi.binex.binex_backend.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowRequestRecorderTests {
+
+	@Test
+	void keepsOnlyTheNewestSlowRequests() {
+		SlowRequestRecorder recorder = new SlowRequestRecorder(0, 3);
+		for (int i = 0; i < 5; i++) {
+			MintTrace trace = new MintTrace("request-" + i);
+			trace.record(MintStage.VALIDATION, trace.start());
+			recorder.record(trace, 200, "minted");
+		}
+
+		assertThat(recorder.getSlowRequests())
+				.extracting(SlowRequestRecorder.SlowRequest::requestId)
+				.containsExactly("request-4", "request-3", "request-2");
+		assertThat(recorder.getSlowRequests().get(0).stages())
+				.extracting(SlowRequestRecorder.Stage::stage)
+				.containsExactly("validation");
+	}
+
+	@Test
+	void ignoresRequestsBelowThreshold() {
+		SlowRequestRecorder recorder = new SlowRequestRecorder(60_000, 3);
+		recorder.record(new MintTrace("fast"), 200, "minted");
+
+		assertThat(recorder.getSlowRequests()).isEmpty();
+	}
+}
@@ -0,0 +1,46 @@
+package de.hsbi.binex.binex_backend.monitoring;
+
+import de.hsbi.binex.binex_backend.service.SurveyCatalog;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SurveyStatisticsTests {
+
+	@Test
+	void countsOutcomesPerSurvey() {
+		SurveyStatistics statistics = new SurveyStatistics(new SurveyCatalog());
+		record(statistics, "vpp-nft-2", "minted");
+		record(statistics, "vpp-nft-2", "minted");
+		record(statistics, "vpp-nft-2", "duplicate");
+		record(statistics, "vpp-nft-2", "error");
+		record(statistics, "vpp-nft-1", "minted");
+		record(statistics, null, "invalid");
+
+		SurveyStatistics.Stats stats = statistics.getStats("vpp-nft-2").orElseThrow();
+		assertThat(stats.accepted()).isEqualTo(4);
+		assertThat(stats.minted()).isEqualTo(2);
+		assertThat(stats.duplicates()).isEqualTo(1);
+		assertThat(stats.failures()).isEqualTo(1);
+		assertThat(statistics.getStats("unknown")).isEmpty();
+	}
+
+	@Test
+	void percentilesStayWithinOneBucketOfTheTrueValue() {
+		long[] histogram = new long[SurveyStatistics.bucketOf(Long.MAX_VALUE) + 1];
+		for (long millis = 1; millis <= 1000; millis++) {
+			histogram[SurveyStatistics.bucketOf(millis)]++;
+		}
+
+		assertThat(SurveyStatistics.percentile(histogram, 0.50)).isBetween(500L, 600L);
+		assertThat(SurveyStatistics.percentile(histogram, 0.99)).isBetween(990L, 1188L);
+		assertThat(SurveyStatistics.percentile(histogram, 1.0)).isBetween(1000L, 1200L);
+		assertThat(SurveyStatistics.percentile(new long[histogram.length], 0.5)).isZero();
+	}
+
+	private static void record(SurveyStatistics statistics, String surveyId, String outcome) {
+		MintTrace trace = new MintTrace(outcome);
+		trace.setSurveyId(surveyId);
+		statistics.record(trace, outcome);
+	}
+}
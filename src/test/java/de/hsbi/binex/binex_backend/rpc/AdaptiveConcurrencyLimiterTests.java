@@ -0,0 +1,116 @@
+package de.hsbi.binex.binex_backend.rpc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTests {
+
+	@Test
+	void growsWhileLatencyStaysLowAndShrinksOnErrors() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 4, 2, 16, 1000, 10, 16);
+		for (int round = 0; round < 50; round++) {
+			List<Long> calls = new ArrayList<>();
+			for (int i = 0; i < limiter.getStatistics().limit(); i++) {
+				calls.add(limiter.acquire("eth_call"));
+			}
+			calls.forEach(start -> limiter.release("eth_call", start, true));
+		}
+		int grown = limiter.getStatistics().limit();
+		assertThat(grown).isGreaterThan(4);
+
+		limiter.release("eth_call", limiter.acquire("eth_call"), false);
+		assertThat(limiter.getStatistics().limit()).isLessThan(grown);
+		assertThat(limiter.getStatistics().errors()).isEqualTo(1);
+	}
+
+	@Test
+	void rejectsCallsBeyondTheLimitAfterTheTimeout() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 2, 2, 2, 2.0, 10, 16);
+		long first = limiter.acquire("eth_call");
+		limiter.acquire("eth_call");
+
+		assertThatThrownBy(() -> limiter.acquire("eth_call")).isInstanceOf(IOException.class);
+		assertThat(limiter.getStatistics().rejected()).isEqualTo(1);
+
+		limiter.release("eth_call", first, true);
+		limiter.acquire("eth_call");
+		assertThat(limiter.getStatistics().inFlight()).isEqualTo(2);
+	}
+
+	@Test
+	void comparesLatencyOnlyWithinTheSameMethod() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 4, 2, 16, 2.0, 10, 16);
+		// Mit Grundlatenz, damit Messrauschen nicht über die Toleranz reicht
+		long fast = TimeUnit.MILLISECONDS.toNanos(50);
+		long slow = 10 * fast;
+		for (int i = 0; i < 20; i++) {
+			limiter.release("eth_blockNumber", limiter.acquire("eth_blockNumber") - fast, true);
+			limiter.release("eth_call", limiter.acquire("eth_call") - slow, true);
+			limiter.release("eth_getLogs", limiter.acquire("eth_getLogs") - 100 * slow, true);
+		}
+
+		assertThat(limiter.getStatistics().limit()).isGreaterThanOrEqualTo(4);
+		assertThat(limiter.getStatistics().minLatencyMs()).containsOnlyKeys("eth_blockNumber", "eth_call");
+	}
+
+	@Test
+	void sendsWaitForASlotInsteadOfBeingRejected() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 2, 2, 2, 2.0, 10, 16);
+		long first = limiter.acquire("eth_call");
+		limiter.acquire("eth_call");
+
+		CompletableFuture<Long> send = CompletableFuture.supplyAsync(() -> {
+			try {
+				return limiter.acquire("eth_sendRawTransaction");
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		});
+		Thread.sleep(100);
+		assertThat(send).isNotDone();
+
+		limiter.release("eth_call", first, true);
+		send.get(5, TimeUnit.SECONDS);
+		assertThat(limiter.getStatistics().rejected()).isZero();
+	}
+
+	@Test
+	void handsAFreedSlotToAnAsyncWaiterWithoutAThread() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 2, 2, 2, 2.0, 10, 16);
+		long first = limiter.acquire("eth_call");
+		limiter.acquire("eth_call");
+
+		CompletableFuture<Long> receipt = limiter.acquireAsync("eth_getTransactionReceipt");
+		CompletableFuture<Long> cancelled = limiter.acquireAsync("eth_getTransactionReceipt");
+		cancelled.cancel(false);
+		assertThat(receipt).isNotDone();
+
+		limiter.release("eth_call", first, true);
+		receipt.get(5, TimeUnit.SECONDS);
+		assertThat(limiter.getStatistics().inFlight()).isEqualTo(2);
+		assertThat(limiter.getStatistics().rejected()).isZero();
+	}
+
+	@Test
+	void failsFastOnceTheQueueIsFull() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 2, 2, 2, 2.0, 10_000, 2);
+		limiter.acquire("eth_call");
+		limiter.acquire("eth_call");
+		limiter.acquireAsync("eth_getTransactionReceipt");
+		limiter.acquireAsync("eth_getTransactionReceipt");
+
+		// Auch Sendungen warten nicht unbegrenzt in der Schlange
+		assertThatThrownBy(() -> limiter.acquire("eth_sendRawTransaction")).isInstanceOf(IOException.class);
+		assertThat(limiter.acquireAsync("eth_getTransactionReceipt")).isCompletedExceptionally();
+		assertThat(limiter.getStatistics().rejected()).isEqualTo(2);
+	}
+}
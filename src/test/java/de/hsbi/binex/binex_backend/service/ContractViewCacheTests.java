@@ -0,0 +1,140 @@
+package de.hsbi.binex.binex_backend.service;
+
+import de.hsbi.binex.binex_backend.ScriptedNode;
+import de.hsbi.binex.binex_backend.contracts.BinexNFT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.EventEncoder;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContractViewCacheTests {
+
+	private static final String CONTRACT = "0xf441041b175329b2d1c28d321ea47f2defc86dde";
+
+	private static final String RECEIVER = "0x0000000000000000000000000000000000000001";
+
+	private static final String EXISTS_SELECTOR = Hash.sha3String("exists(uint256)").substring(0, 10);
+
+	private final Set<BigInteger> minted = ConcurrentHashMap.newKeySet();
+	private volatile CountDownLatch loading;
+	private volatile CountDownLatch release;
+	private ScriptedNode node;
+
+	@BeforeEach
+	void setUp() {
+		// Beantwortet nur exists(uint256) aus dem Set minted, optional erst nach release
+		node = new ScriptedNode().on("eth_call", params -> {
+			String data = params.get(0).get("data").asText();
+			if (!data.startsWith(EXISTS_SELECTOR)) {
+				throw new IOException("Unexpected call " + data);
+			}
+			BigInteger tokenId = Numeric.toBigInt(data.substring(EXISTS_SELECTOR.length()));
+			boolean exists = minted.contains(tokenId);
+			if (release != null) {
+				loading.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			return Numeric.toHexStringWithPrefixZeroPadded(exists ? BigInteger.ONE : BigInteger.ZERO, 64);
+		});
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedEntry() throws Exception {
+		ContractViewCache cache = cache(2, 60);
+		cache.exists(BigInteger.ONE);
+		cache.exists(BigInteger.TWO);
+		// Zugriff auf 1 macht 2 zum ältesten Eintrag
+		cache.exists(BigInteger.ONE);
+		cache.exists(BigInteger.valueOf(3));
+
+		cache.exists(BigInteger.ONE);
+		assertThat(node.count("eth_call")).isEqualTo(3);
+		cache.exists(BigInteger.TWO);
+		assertThat(node.count("eth_call")).isEqualTo(4);
+		assertThat(cache.getStatistics().evictions()).isEqualTo(2);
+		assertThat(cache.getStatistics().size()).isEqualTo(2);
+	}
+
+	@Test
+	void reloadsExpiredEntries() throws Exception {
+		ContractViewCache cache = cache(10, 0);
+		cache.exists(BigInteger.ONE);
+		cache.exists(BigInteger.ONE);
+
+		assertThat(node.count("eth_call")).isEqualTo(2);
+		assertThat(cache.getStatistics().expirations()).isEqualTo(1);
+		assertThat(cache.getStatistics().hits()).isZero();
+	}
+
+	@Test
+	void dropsEntriesOfTokensMintedInAReceipt() throws Exception {
+		ContractViewCache cache = cache(10, 60);
+		assertThat(cache.exists(BigInteger.ONE)).isFalse();
+		assertThat(cache.exists(BigInteger.TWO)).isFalse();
+
+		minted.add(BigInteger.ONE);
+		minted.add(BigInteger.TWO);
+		cache.invalidateFromReceipt(receiptMinting(BigInteger.ONE));
+
+		assertThat(cache.exists(BigInteger.ONE)).isTrue();
+		// Nicht im Receipt enthalten, der Eintrag bleibt bis zum Ablauf der TTL
+		assertThat(cache.exists(BigInteger.TWO)).isFalse();
+		assertThat(node.count("eth_call")).isEqualTo(3);
+	}
+
+	@Test
+	void doesNotStoreAValueLoadedBeforeAnInvalidation() throws Exception {
+		ContractViewCache cache = cache(10, 60);
+		loading = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+		CompletableFuture<Boolean> stale = cache.existsAsync(BigInteger.ONE);
+		assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+		// Der Mint wird bestätigt, während die Abfrage noch den alten Zustand liefert
+		minted.add(BigInteger.ONE);
+		cache.invalidateFromReceipt(receiptMinting(BigInteger.ONE));
+		release.countDown();
+		assertThat(stale.get(10, TimeUnit.SECONDS)).isFalse();
+
+		release = null;
+		assertThat(cache.exists(BigInteger.ONE)).isTrue();
+		assertThat(node.count("eth_call")).isEqualTo(2);
+	}
+
+	private ContractViewCache cache(int maxEntries, long ttlSeconds) {
+		return new ContractViewCache(Web3j.build(node), CONTRACT, maxEntries, ttlSeconds, false);
+	}
+
+	private static TransactionReceipt receiptMinting(BigInteger tokenId) {
+		Log log = new Log();
+		log.setAddress(CONTRACT);
+		log.setData("0x");
+		log.setTopics(List.of(
+				EventEncoder.encode(BinexNFT.TRANSFER_EVENT),
+				Numeric.toHexStringWithPrefixZeroPadded(BigInteger.ZERO, 64),
+				Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(RECEIVER), 64),
+				Numeric.toHexStringWithPrefixZeroPadded(tokenId, 64)));
+		TransactionReceipt receipt = new TransactionReceipt();
+		receipt.setLogs(List.of(log));
+		return receipt;
+	}
+}
@@ -0,0 +1,247 @@
+package de.hsbi.binex.binex_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.hsbi.binex.binex_backend.ScriptedNode;
+import de.hsbi.binex.binex_backend.contracts.BinexNFT;
+import de.hsbi.binex.binex_backend.coordination.InMemoryCoordinationStore;
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.journal.MintJournal;
+import de.hsbi.binex.binex_backend.journal.MintTransactionSender;
+import de.hsbi.binex.binex_backend.monitoring.MintTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.Utils;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.utils.Numeric;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MintBatcherTests {
+
+	private static final String CONTRACT = "0xf441041b175329b2d1c28d321ea47f2defc86dde";
+
+	private static final Credentials CREDENTIALS =
+			Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+
+	private static final String BATCH_MINT_SELECTOR =
+			Hash.sha3String("batchMintTo(address[],uint256[],string[])").substring(0, 10);
+
+	private final ObjectMapper json = new ObjectMapper();
+
+	@TempDir
+	Path directory;
+
+	private Web3j web3j;
+	private MintJournal journal;
+
+	// Zustand des Stand-in-Knotens, der batchMintTo sofort "mined" und vorhandene Token überspringt
+	private final Set<BigInteger> existing = ConcurrentHashMap.newKeySet();
+	private final List<RawTransaction> transactions = new CopyOnWriteArrayList<>();
+	private final List<List<BigInteger>> batches = new CopyOnWriteArrayList<>();
+	private final Map<String, ObjectNode> receipts = new ConcurrentHashMap<>();
+	private volatile String revertReason;
+	private volatile boolean holdReceipts;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		ScriptedNode node = new ScriptedNode()
+				.on("eth_gasPrice", params -> "0x3b9aca00")
+				.on("eth_call", params -> {
+					if (revertReason != null) {
+						throw new ScriptedNode.RpcError(3, "execution reverted: " + revertReason);
+					}
+					return "0x";
+				})
+				.on("eth_getTransactionCount", params -> Numeric.encodeQuantity(BigInteger.valueOf(transactions.size())))
+				.on("eth_sendRawTransaction", params -> mine(params.get(0).asText()))
+				.on("eth_getTransactionReceipt", params -> holdReceipts ? null : receipts.get(params.get(0).asText()));
+		web3j = Web3j.build(node);
+		journal = new MintJournal();
+		ReflectionTestUtils.setField(journal, "path", directory.resolve("journal.dat").toString());
+		ReflectionTestUtils.setField(journal, "capacity", 1 << 20);
+		ReflectionTestUtils.setField(journal, "groupCommitWindowMs", 1L);
+		journal.open();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		journal.close();
+	}
+
+	@Test
+	void mapsTransferEventsBackToEachParticipation() throws Exception {
+		existing.add(BigInteger.valueOf(0xbb));
+		MintBatcher batcher = batcher(false, 10, 1000);
+
+		MintBatcher.BatchItem first = item("aa", "0x0000000000000000000000000000000000000001");
+		MintBatcher.BatchItem alreadyMinted = item("bb", "0x0000000000000000000000000000000000000002");
+		MintBatcher.BatchItem second = item("cc", "0x0000000000000000000000000000000000000003");
+		MintBatcher.BatchItem resubmitted = item("aa", "0x0000000000000000000000000000000000000001");
+		batcher.mintBatch(List.of(first, alreadyMinted, second, resubmitted));
+
+		assertThat(transactions).hasSize(1);
+		assertThat(batches).containsExactly(List.of(BigInteger.valueOf(0xaa), BigInteger.valueOf(0xbb), BigInteger.valueOf(0xcc)));
+		assertThat(first.result().get()).isTrue();
+		assertThat(alreadyMinted.result().get()).isFalse();
+		assertThat(second.result().get()).isTrue();
+		assertThat(resubmitted.result().get()).isFalse();
+		assertThat(journal.pendingMints()).isEmpty();
+	}
+
+	@Test
+	void flushesAsSoonAsTheBatchIsFull() throws Exception {
+		MintBatcher batcher = batcher(true, 2, 60_000);
+		batcher.start();
+		try {
+			CompletableFuture<Boolean> first = batcher.submit(CREDENTIALS, "0x0000000000000000000000000000000000000001",
+					"a1", "vpp-nft-1", "uri-1", new MintTrace("first"), () -> {});
+			CompletableFuture<Boolean> second = batcher.submit(CREDENTIALS, "0x0000000000000000000000000000000000000002",
+					"a2", "vpp-nft-1", "uri-2", new MintTrace("second"), () -> {});
+
+			assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(second.get(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(transactions).hasSize(1);
+		} finally {
+			batcher.stop();
+		}
+	}
+
+	@Test
+	void sendsTheNextBatchWhileTheFirstIsStillPending() throws Exception {
+		holdReceipts = true;
+		MintBatcher batcher = batcher(true, 1, 60_000);
+		batcher.start();
+		try {
+			AtomicInteger sent = new AtomicInteger();
+			CompletableFuture<Boolean> first = batcher.submit(CREDENTIALS, "0x0000000000000000000000000000000000000001",
+					"a1", "vpp-nft-1", "uri-1", new MintTrace("first"), sent::incrementAndGet);
+			CompletableFuture<Boolean> second = batcher.submit(CREDENTIALS, "0x0000000000000000000000000000000000000002",
+					"a2", "vpp-nft-1", "uri-2", new MintTrace("second"), sent::incrementAndGet);
+
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (sent.get() < 2 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertThat(sent.get()).isEqualTo(2);
+			assertThat(transactions).extracting(RawTransaction::getNonce)
+					.containsExactly(BigInteger.ZERO, BigInteger.ONE);
+			assertThat(first).isNotDone();
+			assertThat(second).isNotDone();
+
+			holdReceipts = false;
+			assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(second.get(10, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			batcher.stop();
+		}
+	}
+
+	@Test
+	void rejectsARevertingBatchBeforeJournalingOrSending() throws Exception {
+		revertReason = "Caller is not a maintainer";
+		MintBatcher batcher = batcher(false, 10, 1000);
+
+		MintBatcher.BatchItem item = item("aa", "0x0000000000000000000000000000000000000001");
+		batcher.mintBatch(List.of(item));
+
+		assertThat(item.result()).isCompletedExceptionally();
+		assertThatThrownBy(() -> item.result().get())
+				.hasCauseInstanceOf(MintRejectedException.class)
+				.hasMessageContaining("Caller is not a maintainer");
+		assertThat(transactions).isEmpty();
+		assertThat(journal.pendingMints()).isEmpty();
+	}
+
+	private MintBatcher batcher(boolean enabled, int maxSize, long windowMs) {
+		FeeBumpEngine feeBumpEngine = new FeeBumpEngine(web3j, "legacy", 30, 15, BigDecimal.valueOf(100), 10, 60);
+		ContractViewCache contractViewCache = new ContractViewCache(web3j, CONTRACT, 100, 60, false);
+		NonceCoordinator nonceCoordinator =
+				new NonceCoordinator(web3j, new InMemoryCoordinationStore(), feeBumpEngine, journal, 35443, 5, 60, 120);
+		MintPreflight mintPreflight = new MintPreflight(web3j, CONTRACT, true);
+		MintTransactionSender transactionSender = new MintTransactionSender(web3j, journal, nonceCoordinator, 35443);
+		return new MintBatcher(web3j, journal, feeBumpEngine, contractViewCache, nonceCoordinator, transactionSender,
+				mintPreflight, CONTRACT, 35443, enabled, maxSize, windowMs, maxSize);
+	}
+
+	private static MintBatcher.BatchItem item(String tokenId, String receiver) {
+		return new MintBatcher.BatchItem(CREDENTIALS, receiver, tokenId, "vpp-nft-1", "uri-" + tokenId,
+				new MintTrace(tokenId), System.nanoTime(), () -> {}, new CompletableFuture<>());
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized String mine(String signedTransaction) {
+		RawTransaction transaction = TransactionDecoder.decode(signedTransaction);
+		transactions.add(transaction);
+		String txHash = Hash.sha3(signedTransaction);
+
+		String data = Numeric.cleanHexPrefix(transaction.getData());
+		assertThat("0x" + data.substring(0, 8)).isEqualTo(BATCH_MINT_SELECTOR);
+		List<Type> arguments = FunctionReturnDecoder.decode(data.substring(8), Utils.convert(List.of(
+				new TypeReference<DynamicArray<Address>>() {},
+				new TypeReference<DynamicArray<Uint256>>() {},
+				new TypeReference<DynamicArray<Utf8String>>() {})));
+		List<Address> receivers = ((DynamicArray<Address>) arguments.get(0)).getValue();
+		List<Uint256> tokenIds = ((DynamicArray<Uint256>) arguments.get(1)).getValue();
+		batches.add(tokenIds.stream().map(Uint256::getValue).toList());
+
+		ArrayNode logs = json.createArrayNode();
+		for (int i = 0; i < tokenIds.size(); i++) {
+			BigInteger tokenId = tokenIds.get(i).getValue();
+			if (!existing.add(tokenId)) {
+				continue;
+			}
+			ObjectNode log = logs.addObject();
+			log.put("address", CONTRACT);
+			log.put("data", "0x");
+			log.putArray("topics")
+					.add(EventEncoder.encode(BinexNFT.TRANSFER_EVENT))
+					.add(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.ZERO, 64))
+					.add(Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(receivers.get(i).getValue()), 64))
+					.add(Numeric.toHexStringWithPrefixZeroPadded(tokenId, 64));
+		}
+
+		ObjectNode receipt = json.createObjectNode();
+		receipt.put("transactionHash", txHash);
+		receipt.put("status", "0x1");
+		receipt.put("blockNumber", "0x1");
+		receipt.put("gasUsed", "0x5208");
+		receipt.put("cumulativeGasUsed", "0x5208");
+		receipt.put("from", Keys.toChecksumAddress(CREDENTIALS.getAddress()));
+		receipt.put("to", CONTRACT);
+		receipt.set("logs", logs);
+		receipts.put(txHash, receipt);
+		return txHash;
+	}
+}
@@ -0,0 +1,72 @@
+package de.hsbi.binex.binex_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MintSchedulerTests {
+
+	@Test
+	void interleavesLanesByWeightInsteadOfArrivalOrder() {
+		MintScheduler scheduler = new MintScheduler(1, 1, 100, 2.5, 1);
+		MintScheduler.Permit running = scheduler.acquire(MintPriority.BULK, "vpp-nft-3").join();
+
+		// Ein großer Bulk-Auftrag kommt vor den interaktiven Teilnahmen an
+		List<String> order = new ArrayList<>();
+		Deque<MintScheduler.Permit> granted = new ArrayDeque<>();
+		for (int i = 0; i < 4; i++) {
+			scheduler.acquire(MintPriority.BULK, "vpp-nft-2").thenAccept(permit -> {
+				order.add("bulk");
+				granted.add(permit);
+			});
+		}
+		for (int i = 0; i < 4; i++) {
+			scheduler.acquire(MintPriority.INTERACTIVE, "vpp-nft-1").thenAccept(permit -> {
+				order.add("interactive");
+				granted.add(permit);
+			});
+		}
+
+		running.close();
+		while (!granted.isEmpty()) {
+			granted.poll().close();
+		}
+
+		assertThat(order).containsExactly("interactive", "interactive", "bulk", "interactive", "interactive",
+				"bulk", "bulk", "bulk");
+	}
+
+	@Test
+	void rejectsWhenALaneIsFullAndCapsItsConcurrency() {
+		MintScheduler scheduler = new MintScheduler(10, 2, 1, 4, 1);
+		CompletableFuture<MintScheduler.Permit> first = scheduler.acquire(MintPriority.BULK, "vpp-nft-2");
+		CompletableFuture<MintScheduler.Permit> second = scheduler.acquire(MintPriority.BULK, "vpp-nft-2");
+		CompletableFuture<MintScheduler.Permit> queued = scheduler.acquire(MintPriority.BULK, "vpp-nft-2");
+
+		assertThat(first).isDone();
+		assertThat(second).isDone();
+		assertThat(queued).isNotDone();
+		assertThatThrownBy(() -> scheduler.acquire(MintPriority.BULK, "vpp-nft-2"))
+				.isInstanceOf(MintingUnavailableException.class);
+		// Andere Lanes sind davon nicht betroffen
+		assertThat(scheduler.acquire(MintPriority.INTERACTIVE, "vpp-nft-1")).isDone();
+
+		first.join().close();
+		assertThat(queued).isDone();
+		assertThat(scheduler.getStatistics())
+				.filteredOn(lane -> lane.priority().equals("bulk"))
+				.singleElement()
+				.satisfies(lane -> {
+					assertThat(lane.active()).isEqualTo(2);
+					assertThat(lane.granted()).isEqualTo(3);
+					assertThat(lane.rejected()).isEqualTo(1);
+				});
+	}
+}
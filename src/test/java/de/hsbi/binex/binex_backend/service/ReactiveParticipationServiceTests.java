@@ -0,0 +1,247 @@
+package de.hsbi.binex.binex_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.hsbi.binex.binex_backend.ScriptedNode;
+import de.hsbi.binex.binex_backend.controller.ReactiveParticipationController;
+import de.hsbi.binex.binex_backend.coordination.InMemoryCoordinationStore;
+import de.hsbi.binex.binex_backend.coordination.NonceCoordinator;
+import de.hsbi.binex.binex_backend.fees.FeeBumpEngine;
+import de.hsbi.binex.binex_backend.journal.MintJournal;
+import de.hsbi.binex.binex_backend.journal.MintTransactionSender;
+import de.hsbi.binex.binex_backend.monitoring.RequestEventLogger;
+import de.hsbi.binex.binex_backend.monitoring.SlowRequestRecorder;
+import de.hsbi.binex.binex_backend.monitoring.SurveyStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.Web3j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveParticipationServiceTests {
+
+	private static final String CONTRACT = "0xf441041b175329b2d1c28d321ea47f2defc86dde";
+
+	private static final Credentials CREDENTIALS =
+			Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+
+	private static final String FIRST = "0x0000000000000000000000000000000000000001";
+
+	private static final String SECOND = "0x0000000000000000000000000000000000000002";
+
+	private final ObjectMapper json = new ObjectMapper();
+
+	@TempDir
+	Path directory;
+
+	private RecordingJournal journal;
+	private MintScheduler scheduler;
+	private ReactiveParticipationService service;
+	private ReactiveParticipationController controller;
+
+	// Zustand des Stand-in-Knotens
+	private ScriptedNode node;
+	private final List<String> sent = new CopyOnWriteArrayList<>();
+	private final Map<String, ObjectNode> receipts = new ConcurrentHashMap<>();
+	private volatile String receiptStatus = "0x1";
+	private volatile boolean holdReceipts;
+	private volatile CountDownLatch releaseSends;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		journal = new RecordingJournal();
+		ReflectionTestUtils.setField(journal, "path", directory.resolve("journal.dat").toString());
+		ReflectionTestUtils.setField(journal, "capacity", 1 << 20);
+		ReflectionTestUtils.setField(journal, "groupCommitWindowMs", 1L);
+		journal.open();
+		journal.markReady();
+
+		node = new ScriptedNode()
+				// Noch kein Token geminted, exists(uint256) liefert false
+				.on("eth_call", params -> "0x" + "0".repeat(64))
+				.on("eth_gasPrice", params -> "0x3b9aca00")
+				.on("eth_getTransactionCount", params -> "0x0")
+				.on("eth_sendRawTransaction", params -> {
+					CountDownLatch release = releaseSends;
+					if (release != null) {
+						try {
+							release.await(10, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							throw new IOException(e);
+						}
+					}
+					String signedTransaction = params.get(0).asText();
+					String txHash = Hash.sha3(signedTransaction);
+					sent.add(signedTransaction);
+					receipts.put(txHash, receipt(txHash));
+					return txHash;
+				})
+				.on("eth_getTransactionReceipt", params -> holdReceipts ? null : receipts.get(params.get(0).asText()));
+
+		Web3j web3j = Web3j.build(node);
+		FeeBumpEngine feeBumpEngine = new FeeBumpEngine(web3j, "legacy", 30, 15, BigDecimal.valueOf(100), 10, 60);
+		NonceCoordinator nonceCoordinator = new NonceCoordinator(web3j, new InMemoryCoordinationStore(), feeBumpEngine, journal,
+				35443, 5, 60, 120);
+		MintTransactionSender transactionSender = new MintTransactionSender(web3j, journal, nonceCoordinator, 35443);
+		ContractViewCache cache = new ContractViewCache(web3j, CONTRACT, 100, 60, false);
+		MintPreflight preflight = new MintPreflight(web3j, CONTRACT, false);
+		MintBatcher batcher = new MintBatcher(web3j, journal, feeBumpEngine, cache, nonceCoordinator, transactionSender,
+				preflight, CONTRACT, 35443, false, 10, 1000, 4);
+		scheduler = new MintScheduler(1, 1, 10, 4, 1);
+		SurveyCatalog surveyCatalog = new SurveyCatalog();
+
+		ParticipationService participationService = new ParticipationService(web3j, journal, surveyCatalog, cache,
+				feeBumpEngine, batcher, nonceCoordinator, scheduler, preflight) {
+			@Override
+			Credentials loadCredentials() {
+				return CREDENTIALS;
+			}
+		};
+		ReflectionTestUtils.setField(participationService, "salt", "test");
+		ReflectionTestUtils.setField(participationService, "contractAddress", CONTRACT);
+		ReflectionTestUtils.setField(participationService, "chainId", 35443);
+		ReflectionTestUtils.setField(participationService, "metadataBaseUrl", "");
+
+		service = new ReactiveParticipationService(web3j, journal, cache, participationService, feeBumpEngine, batcher,
+				nonceCoordinator, scheduler, preflight, transactionSender, CONTRACT);
+		ReflectionTestUtils.setField(service, "chainId", 35443L);
+		ReflectionTestUtils.setField(service, "requestTimeoutSeconds", 10L);
+		ReflectionTestUtils.setField(service, "receiptPollIntervalMs", 10L);
+
+		controller = new ReactiveParticipationController(service, new RequestEventLogger(),
+				new SlowRequestRecorder(10_000, 10), new SurveyStatistics(surveyCatalog));
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		journal.close();
+	}
+
+	@Test
+	void mintsAndReportsTheStagesInServerTiming() {
+		ResponseEntity<String> response = mint(FIRST).block(Duration.ofSeconds(10));
+
+		assertThat(response.getStatusCode().value()).isEqualTo(200);
+		assertThat(response.getHeaders().getFirst("Server-Timing"))
+				.contains("validation;dur=", "duplicate_check;dur=", "send;dur=", "confirmation;dur=", "total;dur=");
+		assertThat(sent).hasSize(1);
+		assertThat(journal.pendingMints()).isEmpty();
+	}
+
+	@Test
+	void answersATimeoutWithoutCuttingOffTheSendQueue() throws Exception {
+		ReflectionTestUtils.setField(service, "requestTimeoutSeconds", 1L);
+		releaseSends = new CountDownLatch(1);
+
+		// Die erste Sendung hängt am Knoten, bis die Anfrage abgelaufen ist
+		ResponseEntity<String> timedOut = mint(FIRST).block(Duration.ofSeconds(10));
+		assertThat(timedOut.getStatusCode().value()).isEqualTo(504);
+
+		ReflectionTestUtils.setField(service, "requestTimeoutSeconds", 10L);
+		CompletableFuture<ResponseEntity<String>> next = mint(SECOND).toFuture();
+		Thread.sleep(200);
+		assertThat(node.count("eth_sendRawTransaction")).isEqualTo(1);
+		assertThat(next).isNotDone();
+
+		releaseSends.countDown();
+		assertThat(next.get(10, TimeUnit.SECONDS).getStatusCode().value()).isEqualTo(200);
+		assertThat(sent).extracting(ReactiveParticipationServiceTests::nonceOf).containsExactly(0L, 1L);
+	}
+
+	@Test
+	void releasesTheSchedulerSlotWhenCancelledWhileWaiting() throws Exception {
+		MintScheduler.Permit held = scheduler.acquire(MintPriority.INTERACTIVE, "vpp-nft-1").get();
+		Disposable waiting = mint(FIRST).subscribe();
+		Thread.sleep(200);
+		waiting.dispose();
+		held.close();
+
+		// Der abgebrochene Wartende darf den freien Platz nicht belegen
+		CompletableFuture<MintScheduler.Permit> next = scheduler.acquire(MintPriority.INTERACTIVE, "vpp-nft-1");
+		next.get(1, TimeUnit.SECONDS).close();
+		assertThat(sent).isEmpty();
+	}
+
+	@Test
+	void recordsARevertedMintAsFailed() {
+		receiptStatus = "0x0";
+
+		ResponseEntity<String> response = mint(FIRST).block(Duration.ofSeconds(10));
+
+		assertThat(response.getStatusCode().value()).isEqualTo(500);
+		assertThat(journal.failures.values()).singleElement().asString().startsWith("Reverted in ");
+		assertThat(journal.pendingMints()).isEmpty();
+	}
+
+	@Test
+	void givesConcurrentMintsDifferentNonces() throws Exception {
+		scheduler = new MintScheduler(16, 4, 10, 4, 1);
+		ReflectionTestUtils.setField(service, "mintScheduler", scheduler);
+		holdReceipts = true;
+
+		CompletableFuture<ResponseEntity<String>> first = mint(FIRST).toFuture();
+		CompletableFuture<ResponseEntity<String>> second = mint(SECOND).toFuture();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (sent.size() < 2 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		holdReceipts = false;
+
+		assertThat(first.get(10, TimeUnit.SECONDS).getStatusCode().value()).isEqualTo(200);
+		assertThat(second.get(10, TimeUnit.SECONDS).getStatusCode().value()).isEqualTo(200);
+		assertThat(sent).extracting(ReactiveParticipationServiceTests::nonceOf).containsExactlyInAnyOrder(0L, 1L);
+	}
+
+	private Mono<ResponseEntity<String>> mint(String publicKey) {
+		return controller.mintNFT(publicKey, "vpp-nft-1", "1", null, null, null);
+	}
+
+	private static long nonceOf(String signedTransaction) {
+		return TransactionDecoder.decode(signedTransaction).getNonce().longValueExact();
+	}
+
+	private ObjectNode receipt(String txHash) {
+		ObjectNode receipt = json.createObjectNode();
+		receipt.put("transactionHash", txHash);
+		receipt.put("status", receiptStatus);
+		receipt.put("blockNumber", "0x1");
+		receipt.put("gasUsed", "0x5208");
+		receipt.put("cumulativeGasUsed", "0x5208");
+		receipt.put("to", CONTRACT);
+		receipt.putArray("logs");
+		return receipt;
+	}
+
+	// Hält die Gründe fest, mit denen Mints als gescheitert ins Journal geschrieben werden
+	static class RecordingJournal extends MintJournal {
+
+		final Map<String, String> failures = new ConcurrentHashMap<>();
+
+		@Override
+		public void recordFailed(String tokenId, String reason) throws IOException {
+			failures.put(tokenId, reason);
+			super.recordFailed(tokenId, reason);
+		}
+	}
+}